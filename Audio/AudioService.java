@@ -0,0 +1,272 @@
+package Audio;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * The AudioService class plays every sound of both games. Each asset is
+ * decoded once, on a background thread, into a Sound held in a cache shared
+ * by everyone who plays it; playing it again, from any screen, only starts a
+ * voice. Nothing here waits for a decode: a sound asked to play before it
+ * is ready starts as soon as it is, and load() gives the future to callers
+ * that want to know when. Voices are
+ * mixed per Channel into one output line each (see ChannelOutput), so the
+ * whole program holds one line for music and one for effects, whatever is
+ * played.
+ *
+ * Music is not decoded whole: playMusic() streams the track from its file
+ * as it plays (see MusicStream), looping without a gap, and fades it in and
+ * out. pauseMusic() holds it where it is until resumeMusic().
+ *
+ * An asset is named by its path: a resource on the class path, such as
+ * "Sudoku/backsound.wav", or else a file, looked for as given and then under
+ * src/. Sounds that cannot be found or decoded are reported once and then
+ * play as silence.
+ *
+ * Usage:
+ *   AudioService.getInstance().playMusic("Sudoku/backsound.wav");
+ *   AudioService.getInstance().play("Sudoku/benar sudoku.wav", Channel.EFFECTS);
+ */
+public class AudioService {
+    public static final int SAMPLE_RATE = 44100;
+    /** The format every sound is decoded to and every line plays: 16-bit stereo */
+    public static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, 2, true, false);
+    /** Volumes from 0 to 1 span this many decibels, up to full loudness */
+    public static final float VOLUME_RANGE_DB = 50f;
+    /** How long music takes to fade in when started and out when stopped */
+    public static final int MUSIC_FADE_MILLIS = 400;
+
+    private static final AudioService instance = new AudioService();
+
+    // Decoded assets, completed with null for those that cannot be played
+    private final Map<String, CompletableFuture<Sound>> cache = new ConcurrentHashMap<>();
+    private final ExecutorService decoder = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "audio-decoder");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ChannelOutput[] outputs = new ChannelOutput[Channel.values().length];
+    private Voice music; // the track playing on MUSIC
+    private String musicAsset;
+
+    private AudioService() {
+        for (Channel channel : Channel.values()) {
+            outputs[channel.ordinal()] = new ChannelOutput(channel);
+        }
+    }
+
+    public static AudioService getInstance() {
+        return instance;
+    }
+
+    /**
+     * Start decoding the asset in the background, the first time it is asked
+     * for; the future gives the Sound, or null if it cannot be played
+     */
+    public CompletableFuture<Sound> load(String asset) {
+        return cache.computeIfAbsent(asset, a -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return decode(a);
+            } catch (IOException | UnsupportedAudioFileException e) {
+                System.err.println("Cannot play " + a + ": " + e);
+                return null;
+            }
+        }, decoder));
+    }
+
+    /** The decoded asset, waiting for it if need be; null if it cannot be played */
+    public Sound get(String asset) {
+        return load(asset).join();
+    }
+
+    /** Play the asset once on the channel */
+    public Voice play(String asset, Channel channel) {
+        return start(asset, channel, false, 1f);
+    }
+
+    /** Play the asset once on the channel, at a gain of its own (see Voice.setGain()) */
+    public Voice play(String asset, Channel channel, float gain) {
+        return start(asset, channel, false, gain);
+    }
+
+    /** Play the asset over and over on the channel, until the voice is stopped */
+    public Voice loop(String asset, Channel channel) {
+        return start(asset, channel, true, 1f);
+    }
+
+    /**
+     * Loop the asset as the music, streamed from its file and faded in over
+     * the one before. If it is the music already playing it carries on, so
+     * screens that share a track can each ask for it.
+     */
+    public synchronized Voice playMusic(String asset) {
+        if (music != null && music.isPlaying() && asset.equals(musicAsset)) {
+            return music;
+        }
+        stopMusic();
+        Voice voice = new Voice(true);
+        voice.level = 0f;
+        voice.fadeTo(1f, MUSIC_FADE_MILLIS);
+        ChannelOutput output = outputs[Channel.MUSIC.ordinal()];
+        // Opening the file is left to the decoder threads, like a decode
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return MusicStream.open(asset, true);
+            } catch (IOException | UnsupportedAudioFileException e) {
+                System.err.println("Cannot play " + asset + ": " + e);
+                return null;
+            }
+        }, decoder).thenAccept(stream -> output.start(voice, stream));
+        musicAsset = asset;
+        music = voice;
+        return music;
+    }
+
+    /** Fade the music out and stop it */
+    public synchronized void stopMusic() {
+        if (music != null) {
+            music.fadeOut(MUSIC_FADE_MILLIS);
+            music = null;
+        }
+    }
+
+    /** Hold the music where it is, as when the game is paused */
+    public synchronized void pauseMusic() {
+        if (music != null) {
+            music.pause();
+        }
+    }
+
+    public synchronized void resumeMusic() {
+        if (music != null) {
+            music.resume();
+        }
+    }
+
+    /**
+     * Open the channel's output line in the background, so the first sound
+     * played on it does not wait for that
+     */
+    public void prepare(Channel channel) {
+        outputs[channel.ordinal()].prepare(); // the channel's own thread opens it
+    }
+
+    /** Stop every sound on the channel */
+    public void stopAll(Channel channel) {
+        outputs[channel.ordinal()].stopAll();
+    }
+
+    /**
+     * Volume of the channel, 0 (silent) to 1, as a slider would show it: on
+     * a decibel scale (see toGain()), so each step sounds as big as the last
+     */
+    public float getVolume(Channel channel) {
+        return outputs[channel.ordinal()].getVolume();
+    }
+
+    /** Never waits; the channel's mixing thread ramps to the new volume */
+    public void setVolume(Channel channel, float volume) {
+        outputs[channel.ordinal()].setVolume(volume);
+    }
+
+    /**
+     * The gain samples are multiplied by for a volume: volume 1 is full
+     * loudness, 0 is silence, and in between each tenth of the range is
+     * VOLUME_RANGE_DB / 10 decibels quieter than the next. Ears hear
+     * loudness on such a scale; a straight line from 0 to 1 leaves most of
+     * a slider near full loudness and the quiet end all but unusable.
+     */
+    public static float toGain(float volume) {
+        if (volume <= 0f) {
+            return 0f;
+        }
+        return (float) Math.pow(10, (Math.min(volume, 1f) - 1) * VOLUME_RANGE_DB / 20);
+    }
+
+    private Voice start(String asset, Channel channel, boolean loop, float gain) {
+        Voice voice = new Voice(loop);
+        voice.setGain(gain); // before it starts, so it starts at this gain
+        ChannelOutput output = outputs[channel.ordinal()];
+        CompletableFuture<Sound> sound = load(asset);
+        if (sound.isDone()) {
+            output.start(voice, sound.join());
+        } else {
+            // Heard once decoded, unless stopped before that
+            sound.thenAccept(s -> output.start(voice, s));
+        }
+        return voice;
+    }
+
+    /**
+     * Find an asset, of any kind, on the class path, as a file, or as a file
+     * under src/; throws FileNotFoundException if it is in none of them
+     */
+    public static URL locate(String asset) throws IOException {
+        String path = asset.replace('\\', '/');
+        URL url = AudioService.class.getClassLoader().getResource(path);
+        if (url != null) {
+            return url;
+        }
+        for (File file : new File[] {new File(path), new File("src", path)}) {
+            if (file.isFile()) {
+                return file.toURI().toURL();
+            }
+        }
+        throw new FileNotFoundException(asset);
+    }
+
+    // Read the whole asset as 16-bit stereo at SAMPLE_RATE
+    static Sound decode(String asset) throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(locate(asset))) {
+            AudioFormat source = in.getFormat();
+            int channels = source.getChannels();
+            AudioFormat pcm = new AudioFormat(source.getSampleRate(), 16, channels, true, false);
+            byte[] bytes;
+            try (AudioInputStream decoded = AudioSystem.getAudioInputStream(pcm, in)) {
+                bytes = decoded.readAllBytes();
+            }
+            int frames = bytes.length / (2 * channels);
+            short[] samples = new short[frames * 2];
+            for (int f = 0; f < frames; ++f) {
+                int at = f * 2 * channels;
+                short left = (short) (bytes[at] & 0xFF | bytes[at + 1] << 8);
+                short right = channels == 1 ? left : (short) (bytes[at + 2] & 0xFF | bytes[at + 3] << 8);
+                samples[2 * f] = left;
+                samples[2 * f + 1] = right;
+            }
+            return new Sound(asset, resample(samples, source.getSampleRate()));
+        }
+    }
+
+    // Linear interpolation from the sound's own rate to SAMPLE_RATE
+    private static short[] resample(short[] samples, float rate) {
+        if (rate == SAMPLE_RATE || rate <= 0) {
+            return samples;
+        }
+        int frames = samples.length / 2;
+        int outFrames = (int) ((long) frames * SAMPLE_RATE / rate);
+        short[] out = new short[outFrames * 2];
+        double step = rate / SAMPLE_RATE;
+        for (int f = 0; f < outFrames; ++f) {
+            double at = f * step;
+            int i = (int) at;
+            double t = at - i;
+            int j = Math.min(i + 1, frames - 1);
+            for (int c = 0; c < 2; ++c) {
+                out[2 * f + c] = (short) Math.round(samples[2 * i + c] * (1 - t) + samples[2 * j + c] * t);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,34 @@
+package Audio;
+
+/**
+ * The outputs sounds are routed to. Each channel mixes its own voices into
+ * its own output line, with its own volume, so music and effects can be
+ * turned up or down, or stopped, separately.
+ */
+public enum Channel {
+    MUSIC(2, 2048),   // a track, and room for the next one to start; never starved
+    EFFECTS(16, 256), // started the moment they are asked for
+    UI(4, 256);       // clicks and other sounds of the controls
+
+    private final int voices;
+    private final int latencyFrames;
+
+    private Channel(int voices, int latencyFrames) {
+        this.voices = voices;
+        this.latencyFrames = latencyFrames;
+    }
+
+    /** Sounds the channel can play at once; starting another stops the oldest */
+    public int getVoices() {
+        return voices;
+    }
+
+    /**
+     * Frames the channel mixes ahead of what is being heard: a new sound
+     * waits behind this many, plus a block being mixed. Less is quicker to
+     * start, more rides out a late mixing thread.
+     */
+    public int getLatencyFrames() {
+        return latencyFrames;
+    }
+}
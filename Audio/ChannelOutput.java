@@ -0,0 +1,334 @@
+package Audio;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * The output of one Channel: a fixed pool of voices, mixed in software into
+ * a single SourceDataLine by a thread of its own. The line is opened the
+ * first time something plays and then kept for the life of the program, so
+ * however many sounds are played, and screens opened and closed, the
+ * channel holds exactly one native line.
+ *
+ * The thread mixes BLOCK_FRAMES frames at a time and hands them to the line,
+ * whose buffer holds LINE_BUFFER_FRAMES, but keeps no more than the
+ * channel's latency (Channel.getLatencyFrames()) queued; a new voice is
+ * heard after at most that much sound already queued and one block. With
+ * nothing playing, or only paused voices, the thread waits instead of
+ * writing silence, and a new voice is mixed at once.
+ *
+ * The channel's volume is one volatile value, set from any thread without
+ * waiting. The mixing thread reads it once a block, turns it into a gain
+ * (see AudioService.toGain()) and ramps to that gain frame by frame over
+ * VOLUME_RAMP_MILLIS. A slider dragged across its range therefore glides
+ * instead of stepping, and never clicks.
+ *
+ * Streamed music (see MusicStream) is read from its file by this thread as
+ * it is mixed, one block at a time, so the track is never held whole.
+ *
+ * Nothing here takes a lock the mixing thread holds: voices are handed to
+ * it through a queue, and it opens the line, reads streams and writes the
+ * line on its own. A caller on the event thread never waits for any of it.
+ */
+class ChannelOutput implements Runnable {
+    static final int BLOCK_FRAMES = 128;        // about 3 ms
+    static final int LINE_BUFFER_FRAMES = 2048; // about 46 ms
+
+    static final int VOLUME_RAMP_MILLIS = 30;
+
+    private final Channel channel;
+    // Voices started, waiting for the mixing thread to give them a slot
+    private final Queue<Voice> pending = new ConcurrentLinkedQueue<>();
+    private volatile float volume = 1f;
+    private volatile boolean failed; // no line could be opened, nothing is played
+    private final AtomicLong stopped = new AtomicLong(); // stopAll() calls so far
+    private volatile Thread mixer;
+
+    // Used by the mixing thread only
+    private final Voice[] voices;
+    private final short[] block = new short[BLOCK_FRAMES * 2]; // a streamed voice's next frames
+    private float gain = -1;  // applied to the mix, -1 before the first block
+    private SourceDataLine line;
+    private long started;     // voices placed so far
+
+    ChannelOutput(Channel channel) {
+        this.channel = channel;
+        this.voices = new Voice[channel.getVoices()];
+    }
+
+    float getVolume() {
+        return volume;
+    }
+
+    void setVolume(float volume) {
+        this.volume = Math.max(0f, Math.min(volume, 1f));
+    }
+
+    /**
+     * Start the voice playing the sound, on a free slot or on the oldest
+     * voice's if every one is busy. A voice stopped already, or a null
+     * sound, plays nothing. Never waits: the voice is queued for the
+     * mixing thread, which places it before its next block.
+     */
+    void start(Voice voice, Sound sound) {
+        if (sound == null || !voice.isPlaying() || failed) {
+            voice.stop();
+            return;
+        }
+        voice.sound = sound;
+        queue(voice);
+    }
+
+    /** Start the voice playing the stream, as start(Voice, Sound) does a sound */
+    void start(Voice voice, MusicStream stream) {
+        if (stream == null || !voice.isPlaying() || failed) {
+            voice.stop();
+            if (stream != null) {
+                stream.close();
+            }
+            return;
+        }
+        voice.stream = stream;
+        queue(voice);
+    }
+
+    private void queue(Voice voice) {
+        voice.setOutput(this);
+        voice.generation = stopped.get();
+        pending.add(voice);
+        Thread m = prepare();
+        LockSupport.unpark(m);
+        if (failed) {
+            stopPending(); // the line failed while the voice was being queued
+        }
+    }
+
+    /**
+     * Start the mixing thread, the first time only, which opens the line;
+     * so the first voice does not wait for that. Returns the thread.
+     */
+    Thread prepare() {
+        Thread m = mixer;
+        if (m == null) {
+            synchronized (this) {
+                m = mixer;
+                if (m == null) {
+                    m = new Thread(this, "audio-" + channel.name().toLowerCase());
+                    m.setDaemon(true);
+                    m.setPriority(Thread.MAX_PRIORITY);
+                    mixer = m;
+                    m.start();
+                }
+            }
+        }
+        return m;
+    }
+
+    /** A voice was resumed; mix again if the thread was waiting */
+    void wake() {
+        Thread m = mixer;
+        if (m != null) {
+            LockSupport.unpark(m);
+        }
+    }
+
+    /** Stop every voice started so far; the mixing thread stops them before its next block */
+    void stopAll() {
+        stopped.incrementAndGet();
+        wake();
+    }
+
+    private void stopPending() {
+        Voice voice;
+        while ((voice = pending.poll()) != null) {
+            voice.stop();
+            if (voice.stream != null) {
+                voice.stream.close();
+            }
+        }
+    }
+
+    // Open the line; on the mixing thread
+    private boolean open() {
+        try {
+            SourceDataLine l = AudioSystem.getSourceDataLine(AudioService.FORMAT);
+            l.open(AudioService.FORMAT, LINE_BUFFER_FRAMES * AudioService.FORMAT.getFrameSize());
+            l.start();
+            line = l;
+            return true;
+        } catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+            failed = true;
+            System.err.println("No audio output for " + channel + ": " + e);
+            stopPending();
+            return false;
+        }
+    }
+
+    @Override
+    public void run() {
+        if (!open()) {
+            return;
+        }
+        int[] mix = new int[BLOCK_FRAMES * 2];
+        byte[] out = new byte[BLOCK_FRAMES * AudioService.FORMAT.getFrameSize()];
+        while (true) {
+            while (!mix(mix, out, BLOCK_FRAMES)) {
+                LockSupport.park(this); // until start() or wake()
+                if (Thread.interrupted()) {
+                    return;
+                }
+            }
+            line.write(out, 0, out.length); // blocks while the line's buffer is full
+            // Mix the next block only when it is due, so new voices join soon
+            int queued = (line.getBufferSize() - line.available()) / AudioService.FORMAT.getFrameSize();
+            int ahead = queued - channel.getLatencyFrames();
+            if (ahead > 0) {
+                LockSupport.parkNanos(ahead * 1_000_000_000L / AudioService.SAMPLE_RATE);
+            }
+            if (Thread.interrupted()) {
+                return;
+            }
+        }
+    }
+
+    // Put the voices started since the last block in slots, each on a free
+    // one or on the oldest voice's if every one is busy
+    private void place() {
+        Voice voice;
+        while ((voice = pending.poll()) != null) {
+            voice.started = ++started;
+            int slot = 0;
+            for (int i = 0; i < voices.length; ++i) {
+                if (voices[i] == null || !voices[i].isPlaying()) {
+                    slot = i;
+                    break;
+                }
+                if (voices[i].started < voices[slot].started) {
+                    slot = i;
+                }
+            }
+            if (voices[slot] != null) {
+                voices[slot].stop(); // stolen
+                release(slot);
+            }
+            voices[slot] = voice;
+        }
+    }
+
+    /**
+     * Mix the next frames of every playing voice into out, 16-bit stereo
+     * little-endian; mix is scratch space of 2 ints per frame. Voices
+     * started since the last call are placed first; voices that finish are
+     * released. Called by the mixing thread only. Returns false, writing nothing, if no voice is
+     * playing, or every one is paused.
+     */
+    boolean mix(int[] mix, byte[] out, int frames) {
+        place();
+        long stopAll = stopped.get();
+        boolean playing = false;
+        Arrays.fill(mix, 0, frames * 2, 0);
+        for (int v = 0; v < voices.length; ++v) {
+            Voice voice = voices[v];
+            if (voice == null) {
+                continue;
+            }
+            if (voice.generation < stopAll) {
+                voice.stop();
+            }
+            if (!voice.isPlaying() || voice.isFading() && voice.level == 0f) {
+                voice.stop();
+                release(v);
+                continue;
+            }
+            if (voice.isPaused() && voice.level == 0f) {
+                continue; // held where it is until resumed
+            }
+            playing = true;
+            if (voice.stream != null) {
+                int read;
+                try {
+                    read = voice.stream.read(block, frames);
+                } catch (IOException e) {
+                    System.err.println("Cannot play " + voice.stream.getName() + ": " + e);
+                    read = 0;
+                }
+                add(mix, 0, block, 0, read, voice);
+                if (read < frames) {
+                    voice.stop();
+                }
+            } else {
+                short[] samples = voice.sound.samples;
+                int soundFrames = samples.length / 2;
+                int position = voice.position;
+                for (int f = 0; f < frames; ) {
+                    if (position >= soundFrames) {
+                        if (!voice.loop || soundFrames == 0) {
+                            voice.stop();
+                            break;
+                        }
+                        position = 0;
+                    }
+                    int n = Math.min(frames - f, soundFrames - position);
+                    add(mix, f, samples, position, n, voice);
+                    f += n;
+                    position += n;
+                }
+                voice.position = position;
+            }
+        }
+        if (!playing) {
+            return false;
+        }
+        // The channel's gain, ramped a step a frame towards its volume
+        float target = AudioService.toGain(volume);
+        float g = gain < 0 ? target : gain;
+        float step = 1000f / (AudioService.SAMPLE_RATE * VOLUME_RAMP_MILLIS);
+        long fixed = Math.round(g * 4096); // 12-bit fixed point
+        for (int f = 0; f < frames; ++f) {
+            if (g != target) {
+                g = g < target ? Math.min(g + step, target) : Math.max(g - step, target);
+                fixed = Math.round(g * 4096);
+            }
+            for (int i = 2 * f; i < 2 * f + 2; ++i) {
+                int sample = (int) Math.max(Short.MIN_VALUE, Math.min(mix[i] * fixed >> 12, Short.MAX_VALUE));
+                out[2 * i] = (byte) sample;
+                out[2 * i + 1] = (byte) (sample >> 8);
+            }
+        }
+        gain = g;
+        return true;
+    }
+
+    // Add frames of the voice's samples, from the frame given, into mix at
+    // the frame given, moving its level a step a frame towards its target
+    private static void add(int[] mix, int at, short[] samples, int from, int frames, Voice voice) {
+        float target = voice.getTarget();
+        float level = voice.level < 0 ? target : voice.level;
+        float step = voice.getRampStep();
+        int gain = Math.round(level * 4096); // 12-bit fixed point
+        for (int f = 0; f < frames; ++f) {
+            if (level != target) {
+                level = level < target ? Math.min(level + step, target) : Math.max(level - step, target);
+                gain = Math.round(level * 4096);
+            }
+            mix[2 * (at + f)] += samples[2 * (from + f)] * gain >> 12;
+            mix[2 * (at + f) + 1] += samples[2 * (from + f) + 1] * gain >> 12;
+        }
+        voice.level = level;
+    }
+
+    private void release(int slot) {
+        MusicStream stream = voices[slot].stream;
+        if (stream != null) {
+            stream.close();
+        }
+        voices[slot] = null;
+    }
+}
@@ -0,0 +1,139 @@
+package Audio;
+
+import java.io.IOException;
+import java.net.URL;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * A track read from its file a little at a time, as it plays, instead of
+ * being decoded whole into a Sound. Frames are read through one small
+ * buffer, reused for the life of the stream, converted to 16-bit stereo at
+ * AudioService.SAMPLE_RATE as they are read; so a track of any length takes
+ * the same few kilobytes. Looping reopens the file when it ends and carries
+ * on in the same read, with no gap.
+ *
+ * Read by the mixing thread of the channel it plays on only.
+ */
+final class MusicStream {
+    static final int BUFFER_FRAMES = 1024; // of the file, about 23 ms at 44.1 kHz
+
+    private final String asset;
+    private final URL url;
+    private final boolean loop;
+    private AudioInputStream in;
+    private int channels;      // of the file; only the first two are played
+    private double step;       // file frames per output frame
+    private byte[] buffer;     // BUFFER_FRAMES of the file, 16-bit
+    // Frames read from the file, as stereo; the first is the last of the
+    // previous buffer, to interpolate across buffers
+    private final short[] frames = new short[(BUFFER_FRAMES + 1) * 2];
+    private int count;         // frames held
+    private double position;   // in frames, of the next output frame
+
+    private MusicStream(String asset, URL url, boolean loop) {
+        this.asset = asset;
+        this.url = url;
+        this.loop = loop;
+    }
+
+    /** Open the asset for streaming; it is located like AudioService's */
+    static MusicStream open(String asset, boolean loop) throws IOException, UnsupportedAudioFileException {
+        MusicStream stream = new MusicStream(asset, AudioService.locate(asset), loop);
+        stream.reopen();
+        stream.buffer = new byte[BUFFER_FRAMES * 2 * stream.channels];
+        return stream;
+    }
+
+    String getName() {
+        return asset;
+    }
+
+    /**
+     * Read the next frames, up to frames of them, as 16-bit stereo into out.
+     * Returns how many were read; fewer only at the end of a stream that
+     * does not loop.
+     */
+    int read(short[] out, int frames) throws IOException {
+        int f = 0;
+        while (f < frames) {
+            int i = (int) position;
+            if (i + 1 >= count) {
+                if (!fill()) {
+                    break;
+                }
+                continue;
+            }
+            // Linear interpolation; with the file at SAMPLE_RATE t is always 0
+            double t = position - i;
+            for (int c = 0; c < 2; ++c) {
+                int a = this.frames[2 * i + c];
+                int b = this.frames[2 * (i + 1) + c];
+                out[2 * f + c] = (short) (a + Math.round((b - a) * t));
+            }
+            position += step;
+            f++;
+        }
+        return f;
+    }
+
+    void close() {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // nothing left to do with it
+        }
+    }
+
+    // Read the next buffer of the file, keeping the last frame held
+    private boolean fill() throws IOException {
+        int keep = Math.min(count, 1);
+        if (keep == 1) {
+            frames[0] = frames[2 * (count - 1)];
+            frames[1] = frames[2 * count - 1];
+        }
+        position -= count - keep;
+        count = keep;
+        int bytes = in.read(buffer);
+        if (bytes <= 0 && loop) {
+            in.close();
+            try {
+                reopen();
+            } catch (UnsupportedAudioFileException e) {
+                throw new IOException(e); // it could be read the first time
+            }
+            bytes = in.read(buffer);
+        }
+        if (bytes <= 0) {
+            return false; // ended, or a loop of nothing
+        }
+        int read = bytes / (2 * channels);
+        for (int f = 0; f < read; ++f) {
+            int at = f * 2 * channels;
+            short left = (short) (buffer[at] & 0xFF | buffer[at + 1] << 8);
+            short right = channels == 1 ? left : (short) (buffer[at + 2] & 0xFF | buffer[at + 3] << 8);
+            frames[2 * count] = left;
+            frames[2 * count + 1] = right;
+            count++;
+        }
+        return true;
+    }
+
+    // Open the file from its start as 16-bit PCM at its own rate
+    private void reopen() throws IOException, UnsupportedAudioFileException {
+        AudioInputStream file = AudioSystem.getAudioInputStream(url);
+        AudioFormat source = file.getFormat();
+        AudioFormat pcm = new AudioFormat(source.getSampleRate(), 16, source.getChannels(), true, false);
+        try {
+            in = AudioSystem.getAudioInputStream(pcm, file);
+        } catch (IllegalArgumentException e) {
+            file.close();
+            throw new UnsupportedAudioFileException("Cannot convert " + source + " to PCM");
+        }
+        channels = source.getChannels();
+        float rate = source.getSampleRate();
+        step = rate > 0 ? rate / AudioService.SAMPLE_RATE : 1;
+    }
+}
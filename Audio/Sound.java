@@ -0,0 +1,28 @@
+package Audio;
+
+/**
+ * A decoded sound: 16-bit stereo samples at AudioService.FORMAT's rate,
+ * left and right interleaved. Sounds are shared by every voice playing them
+ * and never change.
+ */
+public final class Sound {
+    private final String name;
+    final short[] samples;
+
+    Sound(String name, short[] samples) {
+        this.name = name;
+        this.samples = samples;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getFrames() {
+        return samples.length / 2;
+    }
+
+    public double getSeconds() {
+        return getFrames() / (double) AudioService.SAMPLE_RATE;
+    }
+}
@@ -0,0 +1,121 @@
+package Audio;
+
+/**
+ * One sound playing on a channel, as returned by AudioService.play() and
+ * loop(). It can be stopped from any thread; it also stops by itself at the
+ * end of the sound, unless looping, or when its channel needs the voice for
+ * a newer sound. A voice whose sound is still being decoded counts as
+ * playing, and is heard once the sound is ready.
+ *
+ * Changes of gain, pausing and fadeOut() are ramped by the mixing thread
+ * over a few milliseconds, or as long as asked, so they never click.
+ */
+public final class Voice {
+    /** How long a change of gain takes unless told otherwise */
+    public static final int RAMP_MILLIS = 10;
+
+    final boolean loop;
+    volatile Sound sound;        // null until the channel starts it
+    volatile MusicStream stream; // instead of sound, for streamed music
+    long started;                // order the voices were started in, to find the oldest
+    long generation;             // the channel's stopAll() calls before this started
+    int position;                // next frame to mix; used by the mixing thread only
+    float level = -1;            // gain being applied, -1 before the first frame; mixing thread only
+    private volatile ChannelOutput output; // to wake when resumed
+    private volatile boolean done;
+    private volatile boolean paused;
+    private volatile boolean fading; // stops when the ramp reaches silence
+    private volatile float gain = 1f;
+    private volatile int rampFrames = AudioService.SAMPLE_RATE * RAMP_MILLIS / 1000;
+
+    Voice(boolean loop) {
+        this.loop = loop;
+    }
+
+    /** The sound, or null while it is being decoded, or if the voice is streamed */
+    public Sound getSound() {
+        return sound;
+    }
+
+    /** Name of the asset playing, or null until it has started */
+    public String getName() {
+        MusicStream s = stream;
+        Sound d = sound;
+        return s != null ? s.getName() : d != null ? d.getName() : null;
+    }
+
+    public boolean isPlaying() {
+        return !done;
+    }
+
+    public void stop() {
+        done = true;
+    }
+
+    /** Ramp down to silence over the time given, then stop */
+    public void fadeOut(int millis) {
+        rampFrames = framesOf(millis);
+        fading = true;
+    }
+
+    /**
+     * Ramp down to silence and hold the voice where it is, keeping its
+     * place in the sound, until resumed
+     */
+    public void pause() {
+        rampFrames = framesOf(RAMP_MILLIS);
+        paused = true;
+    }
+
+    /** Ramp back up from where pause() left off */
+    public void resume() {
+        rampFrames = framesOf(RAMP_MILLIS);
+        paused = false;
+        ChannelOutput o = output;
+        if (o != null) {
+            o.wake();
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /** Loudness of this voice alone, 0 (silent) to 1, on top of its channel's volume */
+    public void setGain(float gain) {
+        rampFrames = framesOf(RAMP_MILLIS);
+        this.gain = Math.max(0f, Math.min(gain, 1f));
+    }
+
+    /** Ramp to the gain over the time given, from a fade-in to a slow swell */
+    public void fadeTo(float gain, int millis) {
+        rampFrames = framesOf(millis);
+        this.gain = Math.max(0f, Math.min(gain, 1f));
+    }
+
+    public float getGain() {
+        return gain;
+    }
+
+    void setOutput(ChannelOutput output) {
+        this.output = output;
+    }
+
+    // The gain the mixer ramps to: silence if pausing or fading out
+    float getTarget() {
+        return paused || fading ? 0f : gain;
+    }
+
+    boolean isFading() {
+        return fading;
+    }
+
+    // How much the mixer moves level each frame
+    float getRampStep() {
+        return 1f / rampFrames;
+    }
+
+    private static int framesOf(int millis) {
+        return Math.max(1, (int) ((long) AudioService.SAMPLE_RATE * millis / 1000));
+    }
+}
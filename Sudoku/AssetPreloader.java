@@ -0,0 +1,71 @@
+package Sudoku;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.imageio.ImageIO;
+import Audio.AudioService;
+import Audio.Sound;
+
+/**
+ * The AssetPreloader class loads the images and sounds of the game on
+ * background threads, all at once, and hands them out as futures. A window
+ * shows at once without them and fills them in as they arrive, instead of
+ * decoding them on the event thread before it can appear. Each asset is
+ * loaded once; asking again gives the same future.
+ *
+ * Music is not among them: it is streamed from its file as it plays (see
+ * AudioService.playMusic()).
+ *
+ * Images are looked for like sounds, by AudioService.locate(): on the class
+ * path, then as a file, then as a file under src/.
+ */
+public class AssetPreloader {
+    /** Every asset of the welcome screen and the game */
+    public static final String[] SOUNDS = {Sudoku.CORRECT_SOUND, Sudoku.INCORRECT_SOUND};
+    public static final String[] IMAGES = {WelcomeScreen.TITLE_IMAGE};
+
+    private static final Map<String, CompletableFuture<BufferedImage>> images = new ConcurrentHashMap<>();
+    private static final ExecutorService loader = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "asset-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private AssetPreloader() { }
+
+    /** Start loading every asset; called before the first window is built */
+    public static void preloadAll() {
+        for (String sound : SOUNDS) {
+            sound(sound);
+        }
+        for (String image : IMAGES) {
+            image(image);
+        }
+    }
+
+    /** The decoded sound, or null if it cannot be played */
+    public static CompletableFuture<Sound> sound(String asset) {
+        return AudioService.getInstance().load(asset);
+    }
+
+    /** The image, or null if it cannot be read */
+    public static CompletableFuture<BufferedImage> image(String asset) {
+        return images.computeIfAbsent(asset, a -> CompletableFuture.supplyAsync(() -> {
+            try {
+                BufferedImage image = ImageIO.read(AudioService.locate(a));
+                if (image == null) {
+                    throw new IOException("Unknown image format");
+                }
+                return image;
+            } catch (IOException e) {
+                System.err.println("Cannot load " + a + ": " + e);
+                return null;
+            }
+        }, loader));
+    }
+}
@@ -1,15 +1,15 @@
 package Sudoku;
 import java.awt.Color;
 import java.awt.Font;
-import javax.swing.JTextField;
+import java.awt.Graphics;
 /**
- * The Cell class model the cells of the Sudoku puzzle, by customizing (subclass)
- * the javax.swing.JTextField to include row/column, puzzle number and status.
+ * The Cell class models the cells of the Sudoku puzzle: row/column, puzzle
+ * number and status. GameBoardPanel draws every cell itself, so a cell is a
+ * plain object that paints itself on the board's Graphics context, copying
+ * its number and pencil marks from a pre-rendered GlyphAtlas.
  */
-public class Cell extends JTextField {
-    private static final long serialVersionUID = 1L;  // to prevent serial warning
-
-    // Define named constants for JTextField's colors and fonts
+public class Cell {
+    // Define named constants for the cell's colors and fonts
     //  to be chosen based on CellStatus
     public static final Color BG_GIVEN = new Color(240, 240, 240); // RGB
     public static final Color FG_GIVEN = Color.BLACK;
@@ -17,75 +17,127 @@ public class Cell extends JTextField {
     public static final Color BG_TO_GUESS = Color.YELLOW;
     public static final Color BG_CORRECT_GUESS = new Color(0, 216, 0);
     public static final Color BG_WRONG_GUESS = new Color(216, 0, 0);
+    public static final Color FG_CONFLICT = Color.RED;
+    public static final Color COLOR_SELECTED = new Color(41, 128, 185);
+    public static final Color COLOR_GRID_LINE = Color.LIGHT_GRAY;
+    public static final Color FG_NOTE = Color.DARK_GRAY;
+    public static final Color BG_HINT = new Color(52, 152, 219, 110); // see-through, over the status color
+    public static final int CONFLICT_WIDTH = 3;
     public static final Font FONT_NUMBERS = new Font("OCR A Extended", Font.PLAIN, 28);
+    /** Cell edge FONT_NUMBERS is sized for */
+    public static final int FONT_CELL_SIZE = 60;
 
     // Define properties (package-visible)
     /**
-     * The row and column number [0-8] of this cell
+     * The row and column number [0-size) of this cell
      */
     int row, col;
     /**
-     * The puzzle number [1-9] for this cell
+     * The number [1-size] shown in this cell: the puzzle number for a given
+     * cell, the player's guess otherwise, 0 if empty
      */
     int number;
     /**
      * The status of this cell defined in enum CellStatus
      */
     CellStatus status;
+    /**
+     * True if this cell's number clashes with another in its row, column or box
+     */
+    boolean conflict;
+    /**
+     * Digits typed so far on a larger board, before the number is complete
+     */
+    String pending = "";
+    /**
+     * Pencil marks: bit digit-1 is set if the player noted digit as possible
+     */
+    int notes;
+    /**
+     * True if this cell is part of the hint being shown
+     */
+    boolean highlighted;
+    /**
+     * Edge of the cell in pixels
+     */
+    final int size;
+    /**
+     * Pencil marks are laid out in a boxSize x boxSize grid inside the cell
+     */
+    final int boxSize;
+    /**
+     * Numbers and pencil marks rendered at this cell's size, shared by the board
+     */
+    private final GlyphAtlas glyphs;
 
     /**
-     * Constructor
+     * Constructor for a cell cellSize pixels wide on a board with boxSize x
+     * boxSize boxes; two-digit numbers on larger boards get a font that still
+     * fits
      */
-    public Cell(int row, int col) {
-        super();   // JTextField
+    public Cell(int row, int col, int cellSize, int boxSize) {
         this.row = row;
         this.col = col;
-        // Inherited from JTextField: Beautify all the cells once for all
-        super.setHorizontalAlignment(JTextField.CENTER);
-        super.setFont(FONT_NUMBERS);
+        this.size = cellSize;
+        this.boxSize = boxSize;
+        this.glyphs = GlyphAtlas.get(cellSize, boxSize);
     }
 
     /**
-     * Reset this cell for a new game, given the puzzle number and isGiven
+     * True if the player can still enter a number here
      */
-    public void newGame(int number, boolean isGiven) {
-        this.number = number;
-        if (number == 0) {
-            setText(""); // Kosongkan sel jika angka adalah 0
-            setEditable(true); // Buat sel dapat diisi pemain
-            status = CellStatus.TO_GUESS; // Tandai status sebagai TO_GUESS
-        } else {
-            setText(String.valueOf(number)); // Tampilkan angka jika diberikan
-            setEditable(false); // Kunci sel jika angka sudah diberikan
-            status = CellStatus.GIVEN; // Tandai status sebagai GIVEN
-        }
-        paint();
+    public boolean isEditable() {
+        return status == CellStatus.TO_GUESS || status == CellStatus.WRONG_GUESS;
     }
 
-
-
-
-    public void paint() {
+    /**
+     * Background color of a cell with the given status
+     */
+    public static Color backgroundOf(CellStatus status) {
         if (status == CellStatus.GIVEN) {
-            super.setText(number == 0 ? "" : String.valueOf(number)); // Tampilkan kosong jika 0
-            super.setEditable(false); // Tidak dapat diedit
-            super.setBackground(BG_GIVEN); // Warna latar belakang
-            super.setForeground(FG_GIVEN); // Warna teks
-            super.setFont(FONT_NUMBERS);
-            super.setHorizontalAlignment(JTextField.CENTER); // Penyusunan teks di tengah
+            return BG_GIVEN; // Warna latar belakang
         } else if (status == CellStatus.TO_GUESS) {
-            super.setText(""); // Sel kosong tidak menampilkan angka
-            super.setEditable(true); // Bisa diedit
-            super.setBackground(BG_TO_GUESS); // Warna latar belakang untuk sel kosong
-            super.setForeground(FG_NOT_GIVEN); // Warna teks
-            super.setFont(FONT_NUMBERS);
-            super.setHorizontalAlignment(JTextField.CENTER); // Penyusunan teks di tengah
+            return BG_TO_GUESS; // Warna latar belakang untuk sel kosong
         } else if (status == CellStatus.CORRECT_GUESS) {
-            super.setBackground(BG_CORRECT_GUESS); // Warna untuk tebakan benar
-        } else if (status == CellStatus.WRONG_GUESS) {
-            super.setBackground(BG_WRONG_GUESS); // Warna untuk tebakan salah
+            return BG_CORRECT_GUESS; // Warna untuk tebakan benar
+        } else {
+            return BG_WRONG_GUESS; // Warna untuk tebakan salah
         }
     }
 
+    /**
+     * Paint itself on the graphics canvas, given the Graphics context
+     */
+    public void paint(Graphics g, boolean selected) {
+        int x = col * size;
+        int y = row * size;
+        // Warna latar belakang, garis sel dan angka dalam satu tile;
+        // angka yang sedang diketik menggantikan angka lama sampai dimasukkan
+        if (!pending.isEmpty()) {
+            glyphs.drawCell(g, status, highlighted, Math.min(Integer.parseInt(pending), boxSize * boxSize), x, y);
+        } else if (number != 0 || notes == 0) {
+            glyphs.drawCell(g, status, highlighted, number != 0 ? number : -1, x, y);
+        } else {
+            // Each pencil mark small, at its place in a boxSize x boxSize grid
+            glyphs.drawCell(g, status, highlighted, -1, x, y);
+            for (int bits = notes; bits != 0; bits &= bits - 1) {
+                glyphs.drawNote(g, highlighted, Integer.numberOfTrailingZeros(bits) + 1, x, y);
+            }
+            g.setColor(COLOR_GRID_LINE); // the marks at the edge cover it
+            g.drawRect(x, y, size - 1, size - 1);
+        }
 
-}
\ No newline at end of file
+        if (conflict) {
+            g.setColor(FG_CONFLICT); // Sorot sel yang bentrok
+            for (int i = 0; i < CONFLICT_WIDTH; ++i) {
+                g.drawRect(x + i, y + i, size - 1 - 2 * i, size - 1 - 2 * i);
+            }
+        }
+        if (selected) {
+            g.setColor(COLOR_SELECTED);
+            for (int i = CONFLICT_WIDTH; i < 2 * CONFLICT_WIDTH; ++i) {
+                g.drawRect(x + i, y + i, size - 1 - 2 * i, size - 1 - 2 * i);
+            }
+        }
+    }
+}
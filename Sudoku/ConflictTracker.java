@@ -0,0 +1,136 @@
+package Sudoku;
+
+import java.util.Arrays;
+
+/**
+ * The ConflictTracker class keeps, for every row, column and box, how many
+ * times each digit is on the board. Changing one cell updates three counters
+ * for the old digit and three for the new one, so finding out whether a cell
+ * clashes with another, or whether the board is complete, never needs a scan.
+ * The same counters give the digits still open to any cell.
+ */
+public class ConflictTracker {
+    final int size;
+    private final int boxSize;
+    private final int cells;
+    private final int[] values;
+    // count[unit * size + digit - 1] is how often digit appears in that unit
+    private final int[] rowCount;
+    private final int[] colCount;
+    private final int[] boxCount;
+    // Bit digit-1 of rowDigits[row] is set while that digit is in the row, etc.
+    private final int[] rowDigits;
+    private final int[] colDigits;
+    private final int[] boxDigits;
+    private final int allDigits;
+    private int filled;     // cells holding a digit
+    private int duplicates; // (unit, digit) pairs that appear more than once
+
+    public ConflictTracker() {
+        this(SudokuConstants.GRID_SIZE);
+    }
+
+    public ConflictTracker(int size) {
+        this.size = size;
+        this.boxSize = (int) Math.round(Math.sqrt(size));
+        this.cells = size * size;
+        values = new int[cells];
+        rowCount = new int[size * size];
+        colCount = new int[size * size];
+        boxCount = new int[size * size];
+        rowDigits = new int[size];
+        colDigits = new int[size];
+        boxDigits = new int[size];
+        allDigits = (1 << size) - 1;
+    }
+
+    /** Empty the board */
+    public void clear() {
+        Arrays.fill(values, 0);
+        Arrays.fill(rowCount, 0);
+        Arrays.fill(colCount, 0);
+        Arrays.fill(boxCount, 0);
+        Arrays.fill(rowDigits, 0);
+        Arrays.fill(colDigits, 0);
+        Arrays.fill(boxDigits, 0);
+        filled = 0;
+        duplicates = 0;
+    }
+
+    /** Put digit [1-size] into the cell, or clear it with 0 */
+    public void set(int row, int col, int digit) {
+        int cell = row * size + col;
+        int old = values[cell];
+        if (old == digit) {
+            return;
+        }
+        int box = boxOf(row, col);
+        if (old != 0) {
+            remove(rowCount, rowDigits, row, old);
+            remove(colCount, colDigits, col, old);
+            remove(boxCount, boxDigits, box, old);
+            filled--;
+        }
+        values[cell] = digit;
+        if (digit != 0) {
+            add(rowCount, rowDigits, row, digit);
+            add(colCount, colDigits, col, digit);
+            add(boxCount, boxDigits, box, digit);
+            filled++;
+        }
+    }
+
+    public int get(int row, int col) {
+        return values[row * size + col];
+    }
+
+    /** True if the cell's digit also appears elsewhere in its row, column or box */
+    public boolean isConflict(int row, int col) {
+        int digit = values[row * size + col];
+        if (digit == 0) {
+            return false;
+        }
+        int d = digit - 1;
+        return rowCount[row * size + d] > 1 || colCount[col * size + d] > 1
+                || boxCount[boxOf(row, col) * size + d] > 1;
+    }
+
+    /**
+     * Mask of the digits (bit digit-1) not yet in the cell's row, column or
+     * box, i.e. the candidates of an empty cell
+     */
+    public int candidates(int row, int col) {
+        return allDigits & ~(rowDigits[row] | colDigits[col] | boxDigits[boxOf(row, col)]);
+    }
+
+    /**
+     * True once every cell is filled without a clash. For a puzzle with a
+     * unique solution that can only be the solution itself.
+     */
+    public boolean isComplete() {
+        return filled == cells && duplicates == 0;
+    }
+
+    /** Index of the box holding the cell, numbered row by row */
+    public int boxOf(int row, int col) {
+        return row / boxSize * boxSize + col / boxSize;
+    }
+
+    private void add(int[] count, int[] digits, int unit, int digit) {
+        int n = ++count[unit * size + digit - 1];
+        if (n == 1) {
+            digits[unit] |= 1 << (digit - 1);
+        } else if (n == 2) {
+            duplicates++;
+        }
+    }
+
+    private void remove(int[] count, int[] digits, int unit, int digit) {
+        int n = --count[unit * size + digit - 1];
+        if (n == 0) {
+            digits[unit] &= ~(1 << (digit - 1));
+        } else if (n == 1) {
+            duplicates--;
+        }
+    }
+}
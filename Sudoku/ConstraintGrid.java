@@ -0,0 +1,272 @@
+package Sudoku;
+
+import java.util.Random;
+
+/**
+ * The ConstraintGrid class keeps the row, column and box occupancy of an N x N
+ * Sudoku grid (N = 9, 16, 25, ...) as N-bit masks. Bit (d - 1) of a mask is set
+ * when digit d is already used in that row, column or box, so the candidates
+ * of a cell are a few bit operations instead of a rescan of the grid.
+ *
+ * The search fills the most constrained empty cell first and works entirely on
+ * the preallocated arrays below, so it allocates nothing per node.
+ */
+public class ConstraintGrid {
+    /** Number of cells of a standard GRID_SIZE board */
+    public static final int CELLS = SudokuConstants.GRID_SIZE * SudokuConstants.GRID_SIZE;
+
+    /** Random fills give up and restart after this many nodes per cell */
+    private static final int FILL_NODES_PER_CELL = 20;
+
+    final int size;
+    final int boxSize;
+    final int cells;
+    /** Mask with one bit set for every digit 1..size */
+    final int allDigits;
+
+    // Lookup tables from cell index (row * size + col) to its units
+    private final int[] rowOf;
+    private final int[] colOf;
+    private final int[] boxOf;
+
+    /** Digit [1-size] in each cell, or 0 if the cell is empty */
+    final int[] values;
+
+    private final int[] rowUsed;
+    private final int[] colUsed;
+    private final int[] boxUsed;
+
+    // The empty cells are kept in empty[0, emptyCount), with emptyPos[cell]
+    // pointing back into the list, so placing and clearing are both O(1).
+    private final int[] empty;
+    private final int[] emptyPos;
+    private int emptyCount;
+
+    private final Random random;
+
+    // State of the counting search
+    private int limit;
+    private int found;
+    private int excludedCell = -1;
+    private int excludedMask;
+
+    // Node budget of the random fill
+    private long nodes;
+    private long nodeBudget;
+
+    /** A standard GRID_SIZE grid */
+    public ConstraintGrid(Random random) {
+        this(SudokuConstants.GRID_SIZE, random);
+    }
+
+    /** A size x size grid; size must be a perfect square no larger than 31 */
+    public ConstraintGrid(int size, Random random) {
+        this.size = size;
+        this.boxSize = (int) Math.round(Math.sqrt(size));
+        if (boxSize * boxSize != size || size > 31) {
+            throw new IllegalArgumentException("Unsupported grid size: " + size);
+        }
+        this.cells = size * size;
+        this.allDigits = (1 << size) - 1;
+        this.random = random;
+
+        rowOf = new int[cells];
+        colOf = new int[cells];
+        boxOf = new int[cells];
+        for (int cell = 0; cell < cells; ++cell) {
+            int row = cell / size;
+            int col = cell % size;
+            rowOf[cell] = row;
+            colOf[cell] = col;
+            boxOf[cell] = (row / boxSize) * boxSize + col / boxSize;
+        }
+
+        values = new int[cells];
+        rowUsed = new int[size];
+        colUsed = new int[size];
+        boxUsed = new int[size];
+        empty = new int[cells];
+        emptyPos = new int[cells];
+        clear();
+    }
+
+    /** Empty every cell */
+    public void clear() {
+        for (int i = 0; i < size; ++i) {
+            rowUsed[i] = 0;
+            colUsed[i] = 0;
+            boxUsed[i] = 0;
+        }
+        for (int cell = 0; cell < cells; ++cell) {
+            values[cell] = 0;
+            empty[cell] = cell;
+            emptyPos[cell] = cell;
+        }
+        emptyCount = cells;
+    }
+
+    /** Returns the mask of digits that can still go into the given cell */
+    public int candidates(int cell) {
+        return ~(rowUsed[rowOf[cell]] | colUsed[colOf[cell]] | boxUsed[boxOf[cell]]) & allDigits;
+    }
+
+    /** Put digit [1-size] into an empty cell. The caller checks it is a candidate. */
+    public void place(int cell, int digit) {
+        int bit = 1 << (digit - 1);
+        values[cell] = digit;
+        rowUsed[rowOf[cell]] |= bit;
+        colUsed[colOf[cell]] |= bit;
+        boxUsed[boxOf[cell]] |= bit;
+
+        // Swap the last empty cell into this cell's slot
+        int pos = emptyPos[cell];
+        int last = empty[--emptyCount];
+        empty[pos] = last;
+        emptyPos[last] = pos;
+        empty[emptyCount] = cell;
+        emptyPos[cell] = emptyCount;
+    }
+
+    /** Empty a filled cell again */
+    public void unplace(int cell) {
+        int bit = ~(1 << (values[cell] - 1));
+        values[cell] = 0;
+        rowUsed[rowOf[cell]] &= bit;
+        colUsed[colOf[cell]] &= bit;
+        boxUsed[boxOf[cell]] &= bit;
+
+        // Move the cell back to the end of the empty list
+        int pos = emptyPos[cell];
+        int first = empty[emptyCount];
+        empty[pos] = first;
+        emptyPos[first] = pos;
+        empty[emptyCount] = cell;
+        emptyPos[cell] = emptyCount;
+        emptyCount++;
+    }
+
+    /**
+     * Fill all the empty cells with a random valid completion.
+     * Returns false if the current cells cannot be completed.
+     *
+     * A random fill occasionally wanders into a dead end it would take very
+     * long to back out of, which matters on 16x16 and 25x25 boards. The search
+     * is therefore cut off after a node budget and restarted with fresh random
+     * choices.
+     */
+    public boolean fill() {
+        nodeBudget = (long) FILL_NODES_PER_CELL * cells;
+        while (true) {
+            nodes = 0;
+            if (randomFill()) {
+                return true;
+            }
+            if (nodes <= nodeBudget) {
+                return false; // searched everything, there is no completion
+            }
+        }
+    }
+
+    private boolean randomFill() {
+        if (emptyCount == 0) {
+            return true;
+        }
+        if (++nodes > nodeBudget) {
+            return false;
+        }
+
+        // Pick the empty cell with the fewest candidates
+        int bestPos = 0;
+        int bestCount = size + 1;
+        for (int i = 0; i < emptyCount; ++i) {
+            int count = Integer.bitCount(candidates(empty[i]));
+            if (count < bestCount) {
+                bestCount = count;
+                bestPos = i;
+                if (count <= 1) {
+                    break; // cannot do better than a forced (or dead) cell
+                }
+            }
+        }
+        if (bestCount == 0) {
+            return false;
+        }
+
+        int cell = empty[bestPos];
+        int mask = candidates(cell);
+        // Try the candidates starting from a random digit to get a random grid
+        int start = random.nextInt(size);
+        for (int i = 0; i < size; ++i) {
+            int digit = (start + i) % size + 1;
+            if ((mask & (1 << (digit - 1))) != 0) {
+                place(cell, digit);
+                if (randomFill()) {
+                    return true;
+                }
+                unplace(cell);
+                if (nodes > nodeBudget) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the current cells can be completed with some digit other
+     * than the given one in the given empty cell. Used to check that removing a
+     * clue keeps the puzzle unique: the original solution is still there, so the
+     * puzzle stays unique exactly when no completion avoids the removed digit.
+     * The search stops at the first such completion.
+     */
+    public boolean hasSolutionWithout(int cell, int digit) {
+        this.limit = 1;
+        this.found = 0;
+        this.excludedCell = cell;
+        this.excludedMask = ~(1 << (digit - 1));
+        search();
+        this.excludedCell = -1;
+        return found > 0;
+    }
+
+    // Returns true once enough solutions have been counted
+    private boolean search() {
+        if (emptyCount == 0) {
+            return ++found >= limit;
+        }
+
+        int bestPos = 0;
+        int bestMask = 0;
+        int bestCount = size + 1;
+        for (int i = 0; i < emptyCount; ++i) {
+            int cell = empty[i];
+            int mask = candidates(cell);
+            if (cell == excludedCell) {
+                mask &= excludedMask;
+            }
+            int count = Integer.bitCount(mask);
+            if (count < bestCount) {
+                bestCount = count;
+                bestMask = mask;
+                bestPos = i;
+                if (count <= 1) {
+                    break;
+                }
+            }
+        }
+        if (bestCount == 0) {
+            return false;
+        }
+
+        int cell = empty[bestPos];
+        for (int mask = bestMask; mask != 0; mask &= mask - 1) {
+            place(cell, Integer.numberOfTrailingZeros(mask) + 1);
+            boolean done = search();
+            unplace(cell);
+            if (done) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,298 @@
+package Sudoku;
+
+/**
+ * The DancingLinksSolver class solves Sudoku grids as an exact-cover problem
+ * with Knuth's Algorithm X on a Dancing Links structure.
+ *
+ * Every candidate "digit d in cell (row, col)" is one row of the exact-cover
+ * matrix, covering four constraint columns: the cell is filled, the row has d,
+ * the column has d and the box has d. The links are plain int arrays built
+ * once in the constructor; a solve only covers and uncovers them in place, so
+ * the search loop allocates nothing and one solver can be reused for any
+ * number of grids.
+ *
+ * Choosing the column with the fewest rows left places naked singles (a cell
+ * with one candidate) and hidden singles (a digit with one place in a unit)
+ * before any branching, which keeps 9x9 grids to a few hundred nodes. Sparse
+ * 16x16 and 25x25 grids can still need millions, seconds of work, so every
+ * search takes a budget of nodes and reports when it gives up instead.
+ */
+public class DancingLinksSolver {
+    private final int size;
+    private final int cells;
+
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] down;
+    private final int[] column;
+    private final int[] rowOf;
+    private final int[] columnSize;
+    /** First node of each candidate row */
+    private final int[] rowStart;
+
+    private final boolean[] columnCovered;
+    // Candidate rows chosen by the search, and the givens selected before it
+    private final int[] chosen;
+    private final int[] givens;
+    private final int[] input;
+
+    /** First solution found by the last solve, as digits [1-size] in row-major order */
+    final int[] solution;
+
+    private int limit;
+    private int count;
+    // Search nodes visited, and the point at which the search gives up
+    private long nodes;
+    private long nodeLimit;
+    private boolean aborted;
+
+    /** Solver for standard GRID_SIZE grids */
+    public DancingLinksSolver() {
+        this(SudokuConstants.GRID_SIZE);
+    }
+
+    /** Solver for size x size grids, size a perfect square */
+    public DancingLinksSolver(int size) {
+        this.size = size;
+        this.cells = size * size;
+        int boxSize = (int) Math.round(Math.sqrt(size));
+        int columns = 4 * cells;
+        int rows = cells * size;
+        // Node 0 is the root, 1..columns are column headers, then 4 nodes per row
+        int nodes = 1 + columns + 4 * rows;
+
+        left = new int[nodes];
+        right = new int[nodes];
+        up = new int[nodes];
+        down = new int[nodes];
+        column = new int[nodes];
+        rowOf = new int[nodes];
+        columnSize = new int[columns + 1];
+        rowStart = new int[rows];
+        columnCovered = new boolean[columns + 1];
+        chosen = new int[cells];
+        givens = new int[cells];
+        input = new int[cells];
+        solution = new int[cells];
+
+        // Column headers in a circular list around the root
+        for (int c = 0; c <= columns; ++c) {
+            left[c] = c == 0 ? columns : c - 1;
+            right[c] = c == columns ? 0 : c + 1;
+            up[c] = c;
+            down[c] = c;
+            column[c] = c;
+        }
+
+        int node = columns + 1;
+        int[] cols = new int[4];
+        for (int cell = 0; cell < cells; ++cell) {
+            int row = cell / size;
+            int col = cell % size;
+            int box = (row / boxSize) * boxSize + col / boxSize;
+            for (int d = 0; d < size; ++d) {
+                int r = cell * size + d;
+                int first = node;
+                rowStart[r] = first;
+                cols[0] = 1 + cell;
+                cols[1] = 1 + cells + row * size + d;
+                cols[2] = 1 + 2 * cells + col * size + d;
+                cols[3] = 1 + 3 * cells + box * size + d;
+                for (int i = 0; i < 4; ++i) {
+                    int c = cols[i];
+                    column[node] = c;
+                    rowOf[node] = r;
+                    // Append at the bottom of column c
+                    up[node] = up[c];
+                    down[node] = c;
+                    down[up[c]] = node;
+                    up[c] = node;
+                    columnSize[c]++;
+                    // Link into the row
+                    left[node] = i == 0 ? first + 3 : node - 1;
+                    right[node] = i == 3 ? first : node + 1;
+                    node++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true if the grid has exactly one solution, which is left in
+     * solution; false if it has none or more, or the search visits more than
+     * maxNodes nodes before it can tell.
+     */
+    public boolean solve(int[] grid, long maxNodes) {
+        return countSolutions(grid, 2, maxNodes) == 1;
+    }
+
+    /**
+     * Count the solutions of the grid (digits in row-major order, 0 for empty),
+     * stopping as soon as limit solutions are found. The first solution is
+     * copied into solution. Returns 0 if the givens contradict each other, and
+     * -1 if the search visits more than maxNodes nodes first; a solution may
+     * still have been found then.
+     */
+    public int countSolutions(int[] grid, int limit, long maxNodes) {
+        this.limit = limit;
+        this.count = 0;
+        this.nodes = 0;
+        this.nodeLimit = maxNodes;
+        this.aborted = false;
+
+        // Select the row of every given digit
+        int selected = 0;
+        boolean consistent = true;
+        for (int cell = 0; cell < cells && consistent; ++cell) {
+            int digit = grid[cell];
+            if (digit != 0) {
+                int r = rowStart[cell * size + digit - 1];
+                if (columnCovered[column[r]] || columnCovered[column[r + 1]]
+                        || columnCovered[column[r + 2]] || columnCovered[column[r + 3]]) {
+                    consistent = false; // the digit clashes with an earlier given
+                } else {
+                    selectRow(r);
+                    givens[selected++] = r;
+                }
+            }
+        }
+
+        if (consistent && limit > 0) {
+            search(0);
+        }
+
+        // Restore the links in reverse order
+        while (selected > 0) {
+            unselectRow(givens[--selected]);
+        }
+
+        if (count > 0) {
+            for (int cell = 0; cell < cells; ++cell) {
+                if (grid[cell] != 0) {
+                    solution[cell] = grid[cell];
+                }
+            }
+        }
+        return aborted ? -1 : count;
+    }
+
+    /**
+     * Returns true if the grid can be completed with some digit other than the
+     * given one in the given empty cell. The candidate row for that digit is
+     * unlinked for the duration of the search, which stops at the first
+     * completion found. If the search visits more than maxNodes nodes it gives
+     * up and also returns true, so a caller checking uniqueness errs on the
+     * safe side.
+     */
+    public boolean hasSolutionWithout(int[] grid, int cell, int digit, long maxNodes) {
+        int r = rowStart[cell * size + digit - 1];
+        for (int j = r; j < r + 4; ++j) {
+            down[up[j]] = down[j];
+            up[down[j]] = up[j];
+            columnSize[column[j]]--;
+        }
+        boolean found = countSolutions(grid, 1, maxNodes) != 0;
+        for (int j = r + 3; j >= r; --j) {
+            columnSize[column[j]]++;
+            down[up[j]] = j;
+            up[down[j]] = j;
+        }
+        return found;
+    }
+
+    /** Convenience overload for the [row][col] arrays used by Puzzle */
+    public int countSolutions(int[][] grid, int limit, long maxNodes) {
+        for (int row = 0; row < size; ++row) {
+            for (int col = 0; col < size; ++col) {
+                input[row * size + col] = grid[row][col];
+            }
+        }
+        return countSolutions(input, limit, maxNodes);
+    }
+
+    // Returns true once enough solutions have been counted
+    private boolean search(int depth) {
+        if (++nodes > nodeLimit) {
+            aborted = true;
+            return true;
+        }
+        if (right[0] == 0) {
+            if (count == 0) {
+                for (int i = 0; i < depth; ++i) {
+                    int r = rowOf[chosen[i]];
+                    solution[r / size] = r % size + 1;
+                }
+            }
+            return ++count >= limit;
+        }
+
+        // Choose the column with the fewest remaining rows
+        int c = right[0];
+        for (int j = right[c]; j != 0; j = right[j]) {
+            if (columnSize[j] < columnSize[c]) {
+                c = j;
+            }
+        }
+        if (columnSize[c] == 0) {
+            return false;
+        }
+
+        boolean done = false;
+        cover(c);
+        for (int r = down[c]; r != c && !done; r = down[r]) {
+            chosen[depth] = r;
+            for (int j = right[r]; j != r; j = right[j]) {
+                cover(column[j]);
+            }
+            done = search(depth + 1);
+            for (int j = left[r]; j != r; j = left[j]) {
+                uncover(column[j]);
+            }
+        }
+        uncover(c);
+        return done;
+    }
+
+    private void selectRow(int r) {
+        int node = r;
+        do {
+            cover(column[node]);
+            node = right[node];
+        } while (node != r);
+    }
+
+    private void unselectRow(int r) {
+        int node = left[r];
+        do {
+            uncover(column[node]);
+            node = left[node];
+        } while (node != left[r]);
+    }
+
+    private void cover(int c) {
+        columnCovered[c] = true;
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for (int i = down[c]; i != c; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                columnSize[column[j]]--;
+            }
+        }
+    }
+
+    private void uncover(int c) {
+        for (int i = up[c]; i != c; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                columnSize[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+        columnCovered[c] = false;
+    }
+}
@@ -0,0 +1,119 @@
+package Sudoku;
+
+/**
+ * The DifficultyGrader class rates a puzzle by solving it with LogicSolver and
+ * adding up the weight of every technique it needed. When no technique
+ * applies the grader takes the answer for the most constrained cell from the
+ * puzzle's solution and counts a GUESS, so every puzzle gets a rating.
+ *
+ * A grader is not thread-safe; use forCurrentThread() to share one per thread.
+ */
+public class DifficultyGrader {
+    // One grader per thread and grid size, created on first use
+    private static final ThreadLocal<DifficultyGrader[]> PER_THREAD =
+            ThreadLocal.withInitial(() -> new DifficultyGrader[32]);
+
+    private final int size;
+    private final LogicSolver solver;
+    private final int[] grid;
+    private final int[] answer;
+
+    private int rating;
+    private Technique hardest;
+
+    public DifficultyGrader() {
+        this(SudokuConstants.GRID_SIZE);
+    }
+
+    public DifficultyGrader(int size) {
+        this.size = size;
+        solver = new LogicSolver(size);
+        grid = new int[size * size];
+        answer = new int[size * size];
+    }
+
+    public static DifficultyGrader forCurrentThread() {
+        return forCurrentThread(SudokuConstants.GRID_SIZE);
+    }
+
+    public static DifficultyGrader forCurrentThread(int size) {
+        DifficultyGrader[] graders = PER_THREAD.get();
+        if (graders[size] == null) {
+            graders[size] = new DifficultyGrader(size);
+        }
+        return graders[size];
+    }
+
+    /** Grade the puzzle and return its rating; see getHardest() for the hardest technique */
+    public int grade(Puzzle puzzle) {
+        for (int row = 0; row < size; ++row) {
+            for (int col = 0; col < size; ++col) {
+                grid[row * size + col] = puzzle.numbers[row][col];
+                answer[row * size + col] = puzzle.solution[row][col];
+            }
+        }
+        return grade(grid, answer);
+    }
+
+    /** Grade the digits (row-major, 0 for empty) whose unique solution is given */
+    public int grade(int[] digits, int[] solution) {
+        solver.load(digits);
+        rating = 0;
+        hardest = Technique.NAKED_SINGLE;
+
+        while (!solver.isSolved()) {
+            Technique technique = solver.step();
+            if (technique == null) {
+                technique = Technique.GUESS;
+                guess(solution);
+            }
+            rating += technique.getWeight();
+            if (technique.compareTo(hardest) > 0) {
+                hardest = technique;
+            }
+        }
+        return rating;
+    }
+
+    public int getRating() {
+        return rating;
+    }
+
+    public Technique getHardest() {
+        return hardest;
+    }
+
+    /** True for the three SudokuConstants difficulty levels */
+    public static boolean isLevel(int difficulty) {
+        return difficulty == SudokuConstants.EASY || difficulty == SudokuConstants.MEDIUM
+                || difficulty == SudokuConstants.HARD;
+    }
+
+    /**
+     * The SudokuConstants difficulty a player would feel for a puzzle whose
+     * hardest technique is the given one: singles only are EASY, intersections
+     * and pairs are MEDIUM, anything harder is HARD.
+     */
+    public static int levelOf(Technique hardest) {
+        if (hardest.compareTo(Technique.HIDDEN_SINGLE) <= 0) {
+            return SudokuConstants.EASY;
+        } else if (hardest.compareTo(Technique.HIDDEN_PAIR) <= 0) {
+            return SudokuConstants.MEDIUM;
+        }
+        return SudokuConstants.HARD;
+    }
+
+    // Fill the empty cell with the fewest candidates from the known solution
+    private void guess(int[] solution) {
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int cell = 0; cell < solver.cells; ++cell) {
+            int count = Integer.bitCount(solver.candidates[cell]);
+            if (solver.values[cell] == 0 && count < bestCount) {
+                best = cell;
+                bestCount = count;
+            }
+        }
+        solver.place(best, solution[best]);
+    }
+}
@@ -4,121 +4,350 @@ import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
 
+/**
+ * The board is a single component that draws every Cell itself. It shows a
+ * SudokuGame, which holds the rules and the state: the cells copy what the
+ * game reports changed, and a change repaints only that cell's rectangle.
+ * paintComponent() only draws the cells inside the clip. Mouse clicks and
+ * arrow keys move the selected cell; typed digits go to the game, as guesses
+ * or, in pencil mode, as notes.
+ */
 public class GameBoardPanel extends JPanel {
     private static final long serialVersionUID = 1L; // to prevent serial warning
 
     public static final int CELL_SIZE = 60;
     public static final int BOARD_WIDTH = CELL_SIZE * SudokuConstants.GRID_SIZE;
     public static final int BOARD_HEIGHT = CELL_SIZE * SudokuConstants.GRID_SIZE;
+    /** Smallest cell edge used when a larger board is shrunk to fit the screen */
+    public static final int MIN_CELL_SIZE = 30;
+    public static final Color COLOR_BOX_LINE = Color.DARK_GRAY;
+    public static final int BOX_LINE_WIDTH = 3;
 
-    private Cell[][] cells = new Cell[SudokuConstants.GRID_SIZE][SudokuConstants.GRID_SIZE];
-    private Puzzle puzzle = new Puzzle();
+    private final SudokuGame game;
+    private int size; // rows, columns and digits of the cells shown
+    private int boxSize;
+    private int cellSize;
+    private Cell[][] cells;
+    private Cell selected;
+    private int[] highlighted = new int[0]; // cells of the hint being shown
     private Sudoku sudoku; // Reference to the Sudoku instance
+    private boolean readOnly; // shows the game, but keys do not change it
 
     public GameBoardPanel(Sudoku sudoku) {
+        this(sudoku, new SudokuGame());
+    }
+
+    /** Construct a board of size x size cells (9, 16 or 25) */
+    public GameBoardPanel(Sudoku sudoku, int size) {
+        this(sudoku, new SudokuGame(size));
+    }
+
+    /** Construct a board showing the game */
+    public GameBoardPanel(Sudoku sudoku, SudokuGame game) {
         this.sudoku = sudoku;
-        super.setLayout(new GridLayout(SudokuConstants.GRID_SIZE, SudokuConstants.GRID_SIZE));
-        CellInputListener listener = new CellInputListener();
-
-        // Allocate the 2D array of Cell, and added into JPanel.
-        for (int row = 0; row < SudokuConstants.GRID_SIZE; ++row) {
-            for (int col = 0; col < SudokuConstants.GRID_SIZE; ++col) {
-                cells[row][col] = new Cell(row, col);
-                super.add(cells[row][col]); // JPanel
+        this.game = game;
+        super.setFocusable(true);
+        super.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int row = e.getY() / cellSize;
+                int col = e.getX() / cellSize;
+                if (row < size && col < size) {
+                    select(cells[row][col]);
+                }
+                requestFocusInWindow();
             }
-        }
+        });
+        super.addKeyListener(new CellInputListener());
+        game.addListener(new SudokuGame.Listener() {
+            @Override
+            public void gameStarted() {
+                rebuild();
+            }
+
+            @Override
+            public void cellChanged(int row, int col) {
+                update(cells[row][col]);
+            }
+
+            @Override
+            public void hintUsed(HintEngine.Hint hint) {
+                showHint(hint);
+            }
+        });
+        rebuild();
+    }
+
+    public SudokuGame getGame() {
+        return game;
+    }
+
+    public int getBoardSize() {
+        return game.getSize();
+    }
+
+    /**
+     * Show a size x size board. Cells shrink as the board grows, down to
+     * MIN_CELL_SIZE; call newGame() afterwards to fill them.
+     */
+    public void setBoardSize(int size) {
+        game.setSize(size);
+    }
 
-        // Add listener to editable cells
-        for (int row = 0; row < SudokuConstants.GRID_SIZE; ++row) {
-            for (int col = 0; col < SudokuConstants.GRID_SIZE; ++col) {
-                if (cells[row][col].isEditable()) {
-                    cells[row][col].addActionListener(listener);
+    // Match the cells to the game, making new ones if its size changed
+    private void rebuild() {
+        game.getHintEngine().cancel();
+        highlighted = new int[0];
+        if (cells == null || size != game.getSize()) {
+            size = game.getSize();
+            boxSize = game.getBoxSize();
+            cellSize = Math.max(CELL_SIZE * SudokuConstants.GRID_SIZE / size, MIN_CELL_SIZE);
+            // Allocate the 2D array of Cell
+            cells = new Cell[size][size];
+            for (int row = 0; row < size; ++row) {
+                for (int col = 0; col < size; ++col) {
+                    cells[row][col] = new Cell(row, col, cellSize, boxSize);
                 }
             }
+            selected = cells[0][0];
+            super.setPreferredSize(new Dimension(cellSize * size, cellSize * size));
+            super.revalidate();
+        }
+        for (Cell[] row : cells) {
+            for (Cell cell : row) {
+                cell.pending = "";
+                cell.highlighted = false;
+                update(cell);
+            }
         }
+        super.repaint();
+        requestFocusInWindow();
+    }
 
-        super.setPreferredSize(new Dimension(BOARD_WIDTH, BOARD_HEIGHT));
+    // Copy the cell's state from the game
+    private void update(Cell cell) {
+        cell.number = game.getNumber(cell.row, cell.col);
+        cell.status = game.getStatus(cell.row, cell.col);
+        cell.notes = game.getNotes(cell.row, cell.col);
+        cell.conflict = game.isConflict(cell.row, cell.col);
+        repaintCell(cell);
     }
 
     // Generate a new puzzle and reset the game board of cells based on the puzzle.
     public void newGame(int difficulty) {
-        puzzle.newPuzzle(difficulty); // Generate a new puzzle
-        for (int row = 0; row < SudokuConstants.GRID_SIZE; ++row) {
-            for (int col = 0; col < SudokuConstants.GRID_SIZE; ++col) {
-                if (!puzzle.isGiven[row][col]) {
-                    // Jika sel kosong (angka 0), buat editable untuk diisi oleh pemain
-                    cells[row][col].newGame(0, false);
-                } else {
-                    // Jika sel diberikan (angka sudah ada), kunci dan tampilkan angka
-                    cells[row][col].newGame(puzzle.numbers[row][col], true);
-                }
-            }
-        }
+        game.newGame(difficulty);
     }
 
-    // Check if the puzzle is solved
+    // Check if the puzzle is solved: every cell filled and nothing clashes
     public boolean isSolved() {
-        for (int row = 0; row < SudokuConstants.GRID_SIZE; ++row) {
-            for (int col = 0; col < SudokuConstants.GRID_SIZE; ++col) {
-                if (cells[row][col].status == CellStatus.TO_GUESS || cells[row][col].status == CellStatus.WRONG_GUESS) {
-                    return false;
-                }
+        return game.isSolved();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        // Only the cells inside the dirty area need drawing
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        int firstRow = Math.max(clip.y / cellSize, 0);
+        int lastRow = Math.min((clip.y + clip.height - 1) / cellSize, size - 1);
+        int firstCol = Math.max(clip.x / cellSize, 0);
+        int lastCol = Math.min((clip.x + clip.width - 1) / cellSize, size - 1);
+        for (int row = firstRow; row <= lastRow; ++row) {
+            for (int col = firstCol; col <= lastCol; ++col) {
+                cells[row][col].paint(g, cells[row][col] == selected);
             }
         }
+
+        // Thick lines between the boxes
+        g.setColor(COLOR_BOX_LINE);
+        int edge = cellSize * size;
+        for (int i = boxSize; i < size; i += boxSize) {
+            g.fillRect(i * cellSize - BOX_LINE_WIDTH / 2, 0, BOX_LINE_WIDTH, edge);
+            g.fillRect(0, i * cellSize - BOX_LINE_WIDTH / 2, edge, BOX_LINE_WIDTH);
+        }
+    }
+
+    // Repaint just the area of one cell, with room for the box line on its edge
+    private void repaintCell(Cell cell) {
+        super.repaint(cell.col * cellSize - BOX_LINE_WIDTH, cell.row * cellSize - BOX_LINE_WIDTH,
+                cellSize + 2 * BOX_LINE_WIDTH, cellSize + 2 * BOX_LINE_WIDTH);
+    }
+
+    private void select(Cell cell) {
+        if (cell == selected) {
+            return;
+        }
+        // Moving away finishes a number still being typed
+        if (!selected.pending.isEmpty()) {
+            enter(selected);
+        }
+        Cell previous = selected;
+        selected = cell;
+        repaintCell(previous);
+        repaintCell(cell);
+    }
+
+    /** Show the game without letting the player change it, as in a replay */
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    public boolean isPencilMode() {
+        return game.isPencilMode();
+    }
+
+    public void setPencilMode(boolean pencilMode) {
+        game.setPencilMode(pencilMode);
+    }
+
+    public boolean isAutoCandidates() {
+        return game.isAutoCandidates();
+    }
+
+    /** Turn automatic pencil marks on or off, see SudokuGame.setAutoCandidates() */
+    public void setAutoCandidates(boolean autoCandidates) {
+        game.setAutoCandidates(autoCandidates);
+    }
+
+    /** Take back the last action and select the cell it changed */
+    public boolean undo() {
+        startReplay();
+        return selectCell(game.undo());
+    }
+
+    /** Do the last action taken back by undo() again */
+    public boolean redo() {
+        startReplay();
+        return selectCell(game.redo());
+    }
+
+    /** Undo every move, back to the puzzle as it was dealt; redo() still works */
+    public void restart() {
+        startReplay();
+        game.restart();
+        select(cells[0][0]);
+    }
+
+    // Drop what the player was typing and any hint, which belong to the current board
+    private void startReplay() {
+        game.getHintEngine().cancel();
+        clearHighlights();
+        selected.pending = "";
+        repaintCell(selected);
+    }
+
+    private boolean selectCell(int index) {
+        if (index < 0) {
+            return false;
+        }
+        select(cells[index / size][index % size]);
         return true;
     }
 
+    /**
+     * Find the easiest logical next step in the background, then fill in its
+     * digit, highlight the cells that explain it and show the explanation.
+     */
     public void provideHint() {
-        for (int row = 0; row < SudokuConstants.GRID_SIZE; ++row) {
-            for (int col = 0; col < SudokuConstants.GRID_SIZE; ++col) {
-                Cell cell = cells[row][col];
-                if (cell.status == CellStatus.TO_GUESS) {
-                    int correctNumber = puzzle.solution[row][col];
-                    cell.setText(String.valueOf(correctNumber));
-                    cell.status = CellStatus.CORRECT_GUESS;
-                    cell.setEditable(false); // Make the cell non-editable after hint
-                    cell.paint();
-                    return; // Provide only one hint at a time
-                }
+        // Work from the givens and correct guesses currently on the board, so the
+        // hint always agrees with what the player has already filled in
+        game.getHintEngine().request(game.knownDigits(), game.solutionDigits(), SwingUtilities::invokeLater, hint -> {
+            if (hint == null) {
+                JOptionPane.showMessageDialog(null, "No more hints available!");
+            } else {
+                game.useHint(hint); // ignored if the board changed since
             }
+        });
+    }
+
+    // Called when the game has filled in a hint
+    private void showHint(HintEngine.Hint hint) {
+        clearHighlights();
+        highlighted = hint.cells;
+        for (int i : highlighted) {
+            cells[i / size][i % size].highlighted = true;
+            repaintCell(cells[i / size][i % size]);
+        }
+        if (sudoku != null) {
+            sudoku.showHint(hint.description);
+        }
+    }
+
+    private void clearHighlights() {
+        for (int i : highlighted) {
+            cells[i / size][i % size].highlighted = false;
+            repaintCell(cells[i / size][i % size]);
+        }
+        highlighted = new int[0];
+    }
+
+    // Check the number typed into the cell, like pressing Enter in a text field
+    private void enter(Cell cell) {
+        clearHighlights();
+        String text = cell.pending;
+        cell.pending = "";
+        repaintCell(cell);
+        int numberIn;
+        try {
+            numberIn = Integer.parseInt(text); // Ambil input pemain
+        } catch (NumberFormatException ex) {
+            return; // Tidak ada yang diketik
+        }
+
+        // Validasi bahwa input berada dalam rentang 1-size
+        if (numberIn < 1 || numberIn > size) {
+            JOptionPane.showMessageDialog(null, "Please enter a number between 1 and " + size + "!");
+            return;
         }
-        JOptionPane.showMessageDialog(null, "No more hints available!");
+        // Periksa jawaban, atau dalam mode pensil tandai sebagai catatan
+        game.enter(cell.row, cell.col, numberIn);
     }
 
-    private class CellInputListener implements ActionListener {
+    private class CellInputListener extends KeyAdapter {
         @Override
-        public void actionPerformed(ActionEvent e) {
-            Cell sourceCell = (Cell) e.getSource();
-            int numberIn;
-            try {
-                numberIn = Integer.parseInt(sourceCell.getText()); // Ambil input pemain
-            } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(null, "Please enter a number between 1 and 9!");
-                sourceCell.setText(""); // Reset input jika tidak valid
-                return;
+        public void keyPressed(KeyEvent e) {
+            int row = selected.row;
+            int col = selected.col;
+            if (readOnly && !e.isActionKey()) {
+                return; // only the arrow keys still move the selection
             }
-
-            // Validasi bahwa input berada dalam rentang 1-9
-            if (numberIn < 1 || numberIn > 9) {
-                JOptionPane.showMessageDialog(null, "Please enter a number between 1 and 9!");
-                sourceCell.setText(""); // Reset input jika tidak valid
-                return;
+            switch (e.getKeyCode()) {
+                case KeyEvent.VK_UP:    row = Math.max(row - 1, 0); break;
+                case KeyEvent.VK_DOWN:  row = Math.min(row + 1, size - 1); break;
+                case KeyEvent.VK_LEFT:  col = Math.max(col - 1, 0); break;
+                case KeyEvent.VK_RIGHT: col = Math.min(col + 1, size - 1); break;
+                case KeyEvent.VK_ENTER:
+                    enter(selected);
+                    return;
+                case KeyEvent.VK_BACK_SPACE:
+                case KeyEvent.VK_DELETE:
+                    // Kosongkan sel yang belum benar, atau catatannya dalam mode pensil
+                    selected.pending = "";
+                    repaintCell(selected);
+                    game.clear(row, col);
+                    return;
+                default:
+                    return;
             }
+            select(cells[row][col]);
+        }
 
-            // Periksa apakah jawaban benar menggunakan puzzle.solution
-            if (numberIn == puzzle.solution[sourceCell.row][sourceCell.col]) {
-                sourceCell.status = CellStatus.CORRECT_GUESS; // Jawaban benar
-                sudoku.updateScore(10); // Update score by 10 points for correct guess
-            } else {
-                sourceCell.status = CellStatus.WRONG_GUESS; // Jawaban salah
+        @Override
+        public void keyTyped(KeyEvent e) {
+            char c = e.getKeyChar();
+            if (readOnly || c < '0' || c > '9' || !selected.isEditable()) {
+                return;
             }
-
-            sourceCell.paint(); // Perbarui tampilan sel
-
-            // Periksa apakah teka-teki sudah selesai
-            if (isSolved()) {
-                JOptionPane.showMessageDialog(null, "Congratulations! You solved the puzzle!");
+            selected.pending += c;
+            repaintCell(selected);
+            // A number is complete once no further digit could keep it on the board
+            int typed = Integer.parseInt(selected.pending);
+            if (size < 10 || typed * 10 > size || selected.pending.length() > 1) {
+                enter(selected);
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,167 @@
+package Sudoku;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The GlyphAtlas class renders every look a cell can have once, as opaque
+ * tiles in one image, and paints cells by copying tiles. Filling the status
+ * color and laying out the number on every repaint is replaced by a single
+ * blit of a tile that already holds the background, the grid line and the
+ * number.
+ *
+ * There is one row of tiles per CellStatus, and another per status for
+ * highlighted cells; each row holds numbers 0 to size and then an empty
+ * cell. Two more rows hold the pencil marks, cellSize / boxSize square, on an
+ * empty cell and on a highlighted one:
+ * <pre>
+ *   rows 0..3   status 0..3            0 1 ... size  empty
+ *   rows 4..7   status 0..3, hint      0 1 ... size  empty
+ *   row  8      pencil marks           0 1 ... size
+ *   row  9      pencil marks, hint     0 1 ... size
+ * </pre>
+ * The atlas is rendered at the screen's pixel scale, so it stays sharp on
+ * HiDPI displays, and rendered again only when that scale changes. Cells of
+ * the same size share one atlas; a new cell size gets a new one.
+ */
+public class GlyphAtlas {
+    private static final Map<Integer, GlyphAtlas> atlases = new HashMap<>();
+    private static final CellStatus[] STATUSES = CellStatus.values();
+
+    private final int cellSize;
+    private final int boxSize;
+    private final int size;  // largest number shown
+    private final int slot;  // edge of a pencil mark
+    private final Font font;
+    private final Font noteFont;
+
+    private double scale;  // device pixels per cell pixel the tiles are rendered for
+    // tiles[row][column], sharing the pixels of one image
+    private BufferedImage[][] tiles;
+
+    private GlyphAtlas(int cellSize, int boxSize) {
+        this.cellSize = cellSize;
+        this.boxSize = boxSize;
+        this.size = boxSize * boxSize;
+        this.slot = cellSize / boxSize;
+        this.font = cellSize == Cell.FONT_CELL_SIZE ? Cell.FONT_NUMBERS
+                : Cell.FONT_NUMBERS.deriveFont(Cell.FONT_NUMBERS.getSize2D() * cellSize / Cell.FONT_CELL_SIZE);
+        this.noteFont = font.deriveFont(Font.PLAIN, Math.max(0.9f * cellSize / boxSize, 6f));
+    }
+
+    /** The atlas for cells cellSize pixels wide on a board with boxSize x boxSize boxes */
+    public static synchronized GlyphAtlas get(int cellSize, int boxSize) {
+        return atlases.computeIfAbsent(cellSize << 8 | boxSize, key -> new GlyphAtlas(cellSize, boxSize));
+    }
+
+    /**
+     * Draw the cell whose top-left corner is x, y: its status color, grid
+     * line and number [0-size], or no number if number is negative
+     */
+    public void drawCell(Graphics g, CellStatus status, boolean highlighted, int number, int x, int y) {
+        validate(g);
+        int row = status.ordinal() + (highlighted ? STATUSES.length : 0);
+        blit(g, tiles[row][number < 0 ? size + 1 : number], x, y, cellSize);
+    }
+
+    /** Draw the pencil mark for digit [1-size] at its place in the empty cell at x, y */
+    public void drawNote(Graphics g, boolean highlighted, int digit, int x, int y) {
+        validate(g);
+        int d = digit - 1;
+        BufferedImage tile = tiles[2 * STATUSES.length + (highlighted ? 1 : 0)][digit];
+        blit(g, tile, x + (d % boxSize) * slot, y + (d / boxSize) * slot, slot);
+    }
+
+    private void blit(Graphics g, BufferedImage tile, int x, int y, int edge) {
+        if (scale == 1) {
+            g.drawImage(tile, x, y, null); // pixel for pixel, a plain copy
+        } else {
+            g.drawImage(tile, x, y, edge, edge, null);
+        }
+    }
+
+    // Render the tiles if there are none yet or the screen scale has changed
+    private void validate(Graphics g) {
+        GraphicsConfiguration config = ((Graphics2D) g).getDeviceConfiguration();
+        double deviceScale = config.getDefaultTransform().getScaleX();
+        if (tiles != null && deviceScale == scale) {
+            return;
+        }
+        scale = deviceScale;
+        int tile = (int) Math.ceil(cellSize * scale);
+        int noteTile = (int) Math.ceil(slot * scale);
+        int cellRows = 2 * STATUSES.length;
+        // Asked for as opaque, so copying a tile never blends
+        BufferedImage image = config.createCompatibleImage((size + 2) * tile, cellRows * tile + 2 * noteTile,
+                Transparency.OPAQUE);
+        Graphics2D g2 = image.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        tiles = new BufferedImage[cellRows + 2][];
+        for (int row = 0; row < cellRows; ++row) {
+            CellStatus status = STATUSES[row % STATUSES.length];
+            boolean highlighted = row >= STATUSES.length;
+            tiles[row] = new BufferedImage[size + 2];
+            for (int number = 0; number <= size + 1; ++number) {
+                int x = number * tile;
+                int y = row * tile;
+                Graphics2D t = tileGraphics(g2, x, y, tile);
+                paintBackground(t, Cell.backgroundOf(status), highlighted, cellSize);
+                t.setColor(Cell.COLOR_GRID_LINE);
+                t.drawRect(0, 0, cellSize - 1, cellSize - 1);
+                if (number <= size) {
+                    paintNumber(t, number, font, status == CellStatus.GIVEN ? Cell.FG_GIVEN : Cell.FG_NOT_GIVEN, cellSize);
+                }
+                t.dispose();
+                tiles[row][number] = image.getSubimage(x, y, tile, tile);
+            }
+        }
+        for (int row = cellRows; row < cellRows + 2; ++row) {
+            tiles[row] = new BufferedImage[size + 1];
+            for (int digit = 0; digit <= size; ++digit) {
+                int x = digit * noteTile;
+                int y = cellRows * tile + (row - cellRows) * noteTile;
+                Graphics2D t = tileGraphics(g2, x, y, noteTile);
+                paintBackground(t, Cell.BG_TO_GUESS, row > cellRows, slot);
+                paintNumber(t, digit, noteFont, Cell.FG_NOTE, slot);
+                t.dispose();
+                tiles[row][digit] = image.getSubimage(x, y, noteTile, noteTile);
+            }
+        }
+        g2.dispose();
+    }
+
+    // Graphics for the tile at device pixel x, y, drawing in cell pixels
+    private Graphics2D tileGraphics(Graphics2D g2, int x, int y, int edge) {
+        Graphics2D t = (Graphics2D) g2.create(x, y, edge, edge);
+        t.scale(scale, scale);
+        return t;
+    }
+
+    private static void paintBackground(Graphics2D t, Color color, boolean highlighted, int edge) {
+        t.setColor(color);
+        t.fillRect(0, 0, edge, edge);
+        if (highlighted) {
+            t.setColor(Cell.BG_HINT);
+            t.fillRect(0, 0, edge, edge);
+        }
+    }
+
+    // Draw the number centered in an edge x edge tile
+    private static void paintNumber(Graphics2D t, int number, Font f, Color color, int edge) {
+        t.setFont(f);
+        t.setColor(color);
+        FontMetrics metrics = t.getFontMetrics();
+        String text = String.valueOf(number);
+        t.drawString(text, (edge - metrics.stringWidth(text)) / 2,
+                (edge - metrics.getHeight()) / 2 + metrics.getAscent());
+    }
+}
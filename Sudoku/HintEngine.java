@@ -0,0 +1,247 @@
+package Sudoku;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * The HintEngine class finds the easiest logical step towards the next digit
+ * of a board, using LogicSolver, and explains it. Searches run one at a time
+ * on a background thread, so a slow technique never blocks the event thread;
+ * a new request cancels the one still running. The engine knows nothing of
+ * Swing: each request says where its callback runs. Hints are cached by board
+ * state, so asking again for the same board costs nothing.
+ */
+public class HintEngine {
+    /** Board states whose hints are remembered, least recently used dropped first */
+    public static final int CACHE_SIZE = 64;
+
+    /** A digit to place, how to find it, and the cells that show why */
+    public static class Hint {
+        /** Cell (row * size + col) and digit the hint fills in */
+        public final int cell;
+        public final int digit;
+        /** Hardest technique needed, GUESS if no technique applies */
+        public final Technique technique;
+        public final String description;
+        /** Cells forming the patterns of the steps, including cell */
+        public final int[] cells;
+
+        Hint(int cell, int digit, Technique technique, String description, int[] cells) {
+            this.cell = cell;
+            this.digit = digit;
+            this.technique = technique;
+            this.description = description;
+            this.cells = cells;
+        }
+    }
+
+    private final int size;
+    private final LogicSolver solver; // one search at a time, guarded by itself
+    private final Map<String, Hint> cache = new LinkedHashMap<String, Hint>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Hint> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private ExecutorService executor; // started by the first request()
+    private Future<?> running;
+
+    private long hits;
+    private long misses;
+
+    public HintEngine() {
+        this(SudokuConstants.GRID_SIZE);
+    }
+
+    public HintEngine(int size) {
+        this.size = size;
+        solver = new LogicSolver(size);
+    }
+
+    /**
+     * Find a hint for the digits (row-major, 0 for empty) in the background
+     * and hand it to callback through callbacks, e.g. SwingUtilities::invokeLater
+     * for the event thread or Runnable::run for the searching thread; null
+     * means the board is full. Cancels any earlier request that has not
+     * finished.
+     */
+    public synchronized void request(int[] digits, int[] solution, Executor callbacks, Consumer<Hint> callback) {
+        cancel();
+        int[] board = digits.clone(); // the caller keeps changing its array
+        Hint cached = cached(key(board));
+        if (cached != null) {
+            callbacks.execute(() -> callback.accept(cached));
+            return;
+        }
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "hint-engine");
+                t.setDaemon(true); // never keep the JVM alive
+                return t;
+            });
+        }
+        running = executor.submit(() -> {
+            Hint hint = find(board, solution);
+            if (!Thread.currentThread().isInterrupted()) {
+                callbacks.execute(() -> callback.accept(hint));
+            }
+        });
+    }
+
+    /** Stop the request still running, if any; its callback is never called */
+    public synchronized void cancel() {
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+    }
+
+    /**
+     * Find the hint for the digits on the calling thread. Returns null if the
+     * board is full, or if the thread is interrupted.
+     */
+    public Hint find(int[] digits, int[] solution) {
+        String key = key(digits);
+        Hint hint = cached(key);
+        if (hint != null) {
+            return hint;
+        }
+        synchronized (solver) {
+            hint = search(digits, solution);
+        }
+        if (hint != null) {
+            synchronized (cache) {
+                misses++;
+                cache.put(key, hint);
+            }
+        }
+        return hint;
+    }
+
+    /** Stop the background thread; the engine cannot be used afterwards */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public long getHits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    public long getMisses() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    private Hint cached(String key) {
+        synchronized (cache) {
+            Hint hint = cache.get(key);
+            if (hint != null) {
+                hits++;
+            }
+            return hint;
+        }
+    }
+
+    // Apply steps until one places a digit; eliminations on the way are part of the hint
+    private Hint search(int[] digits, int[] solution) {
+        solver.load(digits);
+        boolean[] shown = new boolean[size * size];
+        String firstElimination = null;
+        int eliminations = 0;
+        Technique hardest = null;
+        while (!solver.isSolved()) {
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            Technique technique = solver.step();
+            if (technique == null) {
+                break;
+            }
+            if (hardest == null || technique.compareTo(hardest) > 0) {
+                hardest = technique;
+            }
+            for (int i = 0; i < solver.involvedCount; ++i) {
+                shown[solver.involved[i]] = true;
+            }
+            // A hidden single is explained by the unit it is the only place in
+            if (technique == Technique.HIDDEN_SINGLE && solver.stepUnit >= 0) {
+                for (int cell : solver.units[solver.stepUnit]) {
+                    shown[cell] = true;
+                }
+            }
+            if (solver.placedCell >= 0) {
+                shown[solver.placedCell] = true;
+                String description = solver.describe();
+                if (eliminations == 1) {
+                    description = firstElimination + ", then " + description;
+                } else if (eliminations > 1) {
+                    description = eliminations + " eliminations (up to " + hardest.getDisplayName()
+                            + "), then " + description;
+                }
+                return new Hint(solver.placedCell, solver.placedDigit, hardest, description, cellsOf(shown));
+            }
+            if (eliminations++ == 0) {
+                firstElimination = solver.describe();
+            }
+        }
+        return guess(solution, shown);
+    }
+
+    // No technique applies: reveal the empty cell with the fewest candidates
+    private Hint guess(int[] solution, boolean[] shown) {
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int cell = 0; cell < size * size; ++cell) {
+            int count = Integer.bitCount(solver.candidates[cell]);
+            if (solver.values[cell] == 0 && count < bestCount) {
+                best = cell;
+                bestCount = count;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        Arrays.fill(shown, false);
+        shown[best] = true;
+        String description = "No logical step found: " + solution[best] + " goes in row "
+                + (best / size + 1) + ", column " + (best % size + 1);
+        return new Hint(best, solution[best], Technique.GUESS, description, cellsOf(shown));
+    }
+
+    private static int[] cellsOf(boolean[] shown) {
+        int count = 0;
+        for (boolean s : shown) {
+            count += s ? 1 : 0;
+        }
+        int[] cells = new int[count];
+        int n = 0;
+        for (int cell = 0; cell < shown.length; ++cell) {
+            if (shown[cell]) {
+                cells[n++] = cell;
+            }
+        }
+        return cells;
+    }
+
+    // One char per cell identifies the board state exactly
+    private static String key(int[] digits) {
+        char[] key = new char[digits.length];
+        for (int i = 0; i < digits.length; ++i) {
+            key[i] = (char) digits[i];
+        }
+        return new String(key);
+    }
+}
@@ -0,0 +1,313 @@
+package Sudoku;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The Leaderboard class keeps every solved game in an append-only file and
+ * indexes it in memory: for each board (size and difficulty) the TOP_K
+ * fastest games, and each player's best time and score. The index is
+ * rebuilt from the file when the leaderboard is first used.
+ *
+ * The top games of a board are a heap with the slowest of them on top, so
+ * a new game is compared with that one and, if faster, replaces it in
+ * O(log TOP_K). A player's best is a hash lookup. Loading reads the file in
+ * one go and parses it in place, creating an Entry only for the games that
+ * make a top, so even hundreds of thousands of games load in a fraction of
+ * a second; WelcomeScreen starts it in the background anyway. The game
+ * adds its solved games with submit(), which appends them on a writer
+ * thread of its own, so the event thread never waits for the file.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *   int    MAGIC
+ *   short  VERSION
+ *   then per game:
+ *   short  length of the rest of the record
+ *   long   date solved, milliseconds since 1970
+ *   byte   board size
+ *   short  difficulty
+ *   int    seconds
+ *   int    score
+ *   short  hints used
+ *   bytes  player name, UTF-8
+ * </pre>
+ * A record cut short by a crash is dropped, and the file truncated to the
+ * records before it, the next time it is opened.
+ */
+public class Leaderboard {
+    public static final int MAGIC = 0x53444B4C; // "SDKL"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 6;
+    /** Games kept per board */
+    public static final int TOP_K = 10;
+    private static final int FIXED_SIZE = 8 + 1 + 2 + 4 + 4 + 2; // a record without length and name
+
+    /** Leaderboard file used by the game, from the sudoku.leaderboard system property */
+    public static final String DEFAULT_PATH = System.getProperty("sudoku.leaderboard", "sudoku.leaderboard");
+
+    private static Leaderboard defaultBoard;
+    private static ExecutorService writer; // created on the first submit()
+
+    /** One solved game */
+    public static class Entry {
+        public final String player;
+        public final int size;
+        public final int difficulty;
+        public final int seconds;
+        public final int score;
+        public final int hints;
+        public final long date;
+
+        public Entry(String player, int size, int difficulty, int seconds, int score, int hints, long date) {
+            this.player = player;
+            this.size = size;
+            this.difficulty = difficulty;
+            this.seconds = seconds;
+            this.score = score;
+            this.hints = hints;
+            this.date = date;
+        }
+    }
+
+    /** A player's best on one board */
+    public static class Best {
+        public int seconds = Integer.MAX_VALUE;
+        public int score;
+        public int games;
+    }
+
+    /** Faster first; at equal times fewer hints, then the higher score, then the earlier game */
+    public static final Comparator<Entry> RANKING = (a, b) -> compare(a.seconds, a.hints, a.score, a.date, b);
+
+    private final Path path;
+    private final Map<Integer, PriorityQueue<Entry>> tops = new HashMap<>(); // slowest of the top on top
+    private final Map<Integer, Map<String, Best>> bests = new HashMap<>();
+    private int games;
+    private long validLength; // bytes of the file holding whole records
+
+    /** Open the leaderboard in the file, reading every game in it */
+    public Leaderboard(Path path) throws IOException {
+        this.path = path.toAbsolutePath();
+        load();
+    }
+
+    /**
+     * Returns the leaderboard at DEFAULT_PATH, loading it on the first call.
+     * A file that cannot be read is set aside as DEFAULT_PATH.bad and a new
+     * leaderboard started, so no more games are lost to it.
+     */
+    public static synchronized Leaderboard getDefault() {
+        if (defaultBoard == null) {
+            Path path = Paths.get(DEFAULT_PATH);
+            try {
+                defaultBoard = new Leaderboard(path);
+            } catch (IOException e) {
+                e.printStackTrace();
+                try {
+                    Files.move(path, Paths.get(DEFAULT_PATH + ".bad"), StandardCopyOption.REPLACE_EXISTING);
+                    defaultBoard = new Leaderboard(path);
+                } catch (IOException again) {
+                    throw new IllegalStateException(again);
+                }
+            }
+        }
+        return defaultBoard;
+    }
+
+    /** Load the default leaderboard in the background, so it is ready when first shown */
+    public static void warmUp() {
+        Thread loader = new Thread(Leaderboard::getDefault, "leaderboard-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Add a solved game to the default leaderboard in the background, loading
+     * it first if need be. Returns at once; games are added in the order
+     * submitted.
+     */
+    public static synchronized void submit(Entry entry) {
+        if (writer == null) {
+            writer = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "leaderboard-writer");
+                t.setDaemon(true); // flush() is called before the game exits
+                return t;
+            });
+        }
+        writer.execute(() -> {
+            try {
+                getDefault().add(entry);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /** Wait until every game submitted so far is in the file */
+    public static void flush() {
+        ExecutorService w;
+        synchronized (Leaderboard.class) {
+            w = writer;
+        }
+        if (w == null) {
+            return;
+        }
+        try {
+            w.submit(() -> { }).get(); // runs after any queued add
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // The index key of a board
+    private static int key(int size, int difficulty) {
+        return size << 16 | difficulty;
+    }
+
+    // Negative if a game with these results ranks above e, positive if below
+    private static int compare(int seconds, int hints, int score, long date, Entry e) {
+        if (seconds != e.seconds) {
+            return Integer.compare(seconds, e.seconds);
+        }
+        if (hints != e.hints) {
+            return Integer.compare(hints, e.hints);
+        }
+        if (score != e.score) {
+            return Integer.compare(e.score, score);
+        }
+        return Long.compare(date, e.date);
+    }
+
+    private void load() throws IOException {
+        byte[] data;
+        try {
+            data = Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if (data.length < HEADER_SIZE || in.getInt() != MAGIC || in.getShort() != VERSION) {
+            throw new IOException("Not a leaderboard of this version");
+        }
+        validLength = HEADER_SIZE;
+        while (in.remaining() >= 2) {
+            int length = in.getShort() & 0xFFFF;
+            if (length < FIXED_SIZE || in.remaining() < length) {
+                break; // cut short while it was being written
+            }
+            int end = in.position() + length;
+            long date = in.getLong();
+            int size = in.get() & 0xFF;
+            int difficulty = in.getShort() & 0xFFFF;
+            int seconds = in.getInt();
+            int score = in.getInt();
+            int hints = in.getShort() & 0xFFFF;
+            String player = new String(data, in.position(), end - in.position(), StandardCharsets.UTF_8);
+            in.position(end);
+            validLength = end;
+            index(player, size, difficulty, seconds, score, hints, date);
+        }
+    }
+
+    // Add a game to the index; creates an Entry only if it makes the top
+    private void index(String player, int size, int difficulty, int seconds, int score, int hints, long date) {
+        games++;
+        int key = key(size, difficulty);
+        Best best = bests.computeIfAbsent(key, k -> new HashMap<>()).computeIfAbsent(player, p -> new Best());
+        best.games++;
+        best.seconds = Math.min(best.seconds, seconds);
+        best.score = Math.max(best.score, score);
+
+        PriorityQueue<Entry> top = tops.computeIfAbsent(key, k -> new PriorityQueue<>(TOP_K + 1, RANKING.reversed()));
+        if (top.size() == TOP_K && compare(seconds, hints, score, date, top.peek()) >= 0) {
+            return; // not among the best, nothing to keep
+        }
+        top.add(new Entry(player, size, difficulty, seconds, score, hints, date));
+        if (top.size() > TOP_K) {
+            top.poll();
+        }
+    }
+
+    /** Add a solved game, appending it to the file */
+    public synchronized void add(Entry entry) throws IOException {
+        byte[] name = entry.player.getBytes(StandardCharsets.UTF_8);
+        int length = FIXED_SIZE + Math.min(name.length, 0xFFFF - FIXED_SIZE);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + 2 + length);
+        if (validLength == 0) {
+            record.putInt(MAGIC);
+            record.putShort(VERSION);
+        }
+        record.putShort((short) length);
+        record.putLong(entry.date);
+        record.put((byte) entry.size);
+        record.putShort((short) entry.difficulty);
+        record.putInt(entry.seconds);
+        record.putInt(entry.score);
+        record.putShort((short) entry.hints);
+        record.put(name, 0, length - FIXED_SIZE);
+        record.flip();
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            out.truncate(validLength); // drop a record cut short, if there is one
+            out.position(validLength);
+            while (record.hasRemaining()) {
+                out.write(record);
+            }
+            validLength = out.position();
+        }
+        index(entry.player, entry.size, entry.difficulty, entry.seconds, entry.score, entry.hints, entry.date);
+    }
+
+    /** The fastest games on a board, best first; at most TOP_K */
+    public synchronized List<Entry> top(int size, int difficulty) {
+        PriorityQueue<Entry> top = tops.get(key(size, difficulty));
+        if (top == null) {
+            return new ArrayList<>();
+        }
+        Entry[] entries = top.toArray(new Entry[0]);
+        Arrays.sort(entries, RANKING);
+        return new ArrayList<>(Arrays.asList(entries));
+    }
+
+    /** The player's best on a board, or null if they have not solved one */
+    public synchronized Best best(String player, int size, int difficulty) {
+        Map<String, Best> players = bests.get(key(size, difficulty));
+        return players == null ? null : players.get(player);
+    }
+
+    /** Boards with at least one game, as {size, difficulty}, smallest and easiest first */
+    public synchronized List<int[]> boards() {
+        Integer[] keys = tops.keySet().toArray(new Integer[0]);
+        Arrays.sort(keys);
+        List<int[]> boards = new ArrayList<>();
+        for (int key : keys) {
+            boards.add(new int[] {key >>> 16, key & 0xFFFF});
+        }
+        return boards;
+    }
+
+    /** Games solved, on every board */
+    public synchronized int getGameCount() {
+        return games;
+    }
+}
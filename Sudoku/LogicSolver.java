@@ -0,0 +1,524 @@
+package Sudoku;
+
+/**
+ * The LogicSolver class solves a Sudoku one step at a time the way a person
+ * would: every step uses the easiest Technique that makes progress, and the
+ * cells, unit and digits the step is based on are kept so that it can be
+ * explained.
+ *
+ * Candidates are kept as bitmasks (bit d - 1 for digit d) and every search
+ * works on preallocated arrays, so a solver can be reused for many grids.
+ */
+public class LogicSolver {
+    final int size;
+    final int boxSize;
+    final int cells;
+    final int allDigits;
+
+    /** Cells of each unit: rows first, then columns, then boxes */
+    final int[][] units;
+    /** The row, column and box unit of each cell */
+    final int[][] unitsOf;
+    /** The cells sharing a unit with each cell */
+    final int[][] peers;
+
+    /** Digit in each cell, 0 if empty */
+    final int[] values;
+    /** Remaining candidates of each empty cell */
+    final int[] candidates;
+    private int unsolved;
+
+    // Description of the last step
+    Technique lastTechnique;
+    /** Cell and digit placed by the last step, or -1 if it only removed candidates */
+    int placedCell = -1;
+    int placedDigit;
+    /** Unit the last step was found in, or -1 */
+    int stepUnit = -1;
+    /** Digits the last step is about */
+    int stepDigits;
+    /** Cells forming the pattern of the last step */
+    final int[] involved;
+    int involvedCount;
+    /** Cells that lost candidates in the last step */
+    final int[] eliminated;
+    int eliminatedCount;
+
+    // Subset search: pool of items (cells, digits or lines) with a mask each
+    private static final int NAKED = 0, HIDDEN = 1, FISH = 2;
+    private final int[] pool;
+    private final int[] poolMask;
+    private int poolCount;
+    private final int[] combo = new int[3];
+    private int subsetKind;
+    private int subsetUnit;
+    private int subsetDigit;
+    private boolean fishByRows;
+
+    public LogicSolver() {
+        this(SudokuConstants.GRID_SIZE);
+    }
+
+    public LogicSolver(int size) {
+        this.size = size;
+        this.boxSize = (int) Math.round(Math.sqrt(size));
+        this.cells = size * size;
+        this.allDigits = (int) ((1L << size) - 1);
+
+        units = new int[3 * size][size];
+        unitsOf = new int[cells][3];
+        for (int cell = 0; cell < cells; ++cell) {
+            int row = cell / size;
+            int col = cell % size;
+            int box = (row / boxSize) * boxSize + col / boxSize;
+            int inBox = (row % boxSize) * boxSize + col % boxSize;
+            units[row][col] = cell;
+            units[size + col][row] = cell;
+            units[2 * size + box][inBox] = cell;
+            unitsOf[cell][0] = row;
+            unitsOf[cell][1] = size + col;
+            unitsOf[cell][2] = 2 * size + box;
+        }
+
+        peers = new int[cells][];
+        boolean[] seen = new boolean[cells];
+        int[] list = new int[3 * size];
+        for (int cell = 0; cell < cells; ++cell) {
+            int count = 0;
+            for (int u : unitsOf[cell]) {
+                for (int other : units[u]) {
+                    if (other != cell && !seen[other]) {
+                        seen[other] = true;
+                        list[count++] = other;
+                    }
+                }
+            }
+            peers[cell] = new int[count];
+            for (int i = 0; i < count; ++i) {
+                peers[cell][i] = list[i];
+                seen[list[i]] = false;
+            }
+        }
+
+        values = new int[cells];
+        candidates = new int[cells];
+        involved = new int[cells];
+        eliminated = new int[cells];
+        pool = new int[size];
+        poolMask = new int[size];
+    }
+
+    /** Start from the given digits (row-major, 0 for empty) */
+    public void load(int[] grid) {
+        unsolved = cells;
+        for (int cell = 0; cell < cells; ++cell) {
+            values[cell] = 0;
+            candidates[cell] = allDigits;
+        }
+        for (int cell = 0; cell < cells; ++cell) {
+            if (grid[cell] != 0) {
+                place(cell, grid[cell]);
+            }
+        }
+        lastTechnique = null;
+    }
+
+    public boolean isSolved() {
+        return unsolved == 0;
+    }
+
+    /** Put a digit into an empty cell and remove it from the candidates of its peers */
+    public void place(int cell, int digit) {
+        int bit = 1 << (digit - 1);
+        values[cell] = digit;
+        candidates[cell] = 0;
+        unsolved--;
+        for (int peer : peers[cell]) {
+            candidates[peer] &= ~bit;
+        }
+    }
+
+    /**
+     * Apply the easiest step that makes progress and return its technique, or
+     * null if no known technique applies (or the grid is already solved).
+     */
+    public Technique step() {
+        placedCell = -1;
+        stepUnit = -1;
+        stepDigits = 0;
+        involvedCount = 0;
+        eliminatedCount = 0;
+        lastTechnique = findStep();
+        return lastTechnique;
+    }
+
+    private Technique findStep() {
+        if (unsolved == 0) {
+            return null;
+        }
+        if (nakedSingle()) {
+            return Technique.NAKED_SINGLE;
+        }
+        if (hiddenSingle()) {
+            return Technique.HIDDEN_SINGLE;
+        }
+        if (pointing()) {
+            return Technique.POINTING;
+        }
+        if (boxLineReduction()) {
+            return Technique.BOX_LINE_REDUCTION;
+        }
+        if (nakedSubset(2)) {
+            return Technique.NAKED_PAIR;
+        }
+        if (hiddenSubset(2)) {
+            return Technique.HIDDEN_PAIR;
+        }
+        if (nakedSubset(3)) {
+            return Technique.NAKED_TRIPLE;
+        }
+        if (hiddenSubset(3)) {
+            return Technique.HIDDEN_TRIPLE;
+        }
+        if (fish(2)) {
+            return Technique.X_WING;
+        }
+        if (fish(3)) {
+            return Technique.SWORDFISH;
+        }
+        return null;
+    }
+
+    /** Human-readable explanation of the last step */
+    public String describe() {
+        if (lastTechnique == null) {
+            return "No logical step found";
+        }
+        StringBuilder sb = new StringBuilder(lastTechnique.getDisplayName());
+        if (stepDigits != 0) {
+            sb.append(" on ");
+            boolean first = true;
+            for (int mask = stepDigits; mask != 0; mask &= mask - 1) {
+                sb.append(first ? "" : "/").append(Integer.numberOfTrailingZeros(mask) + 1);
+                first = false;
+            }
+        }
+        if (stepUnit >= 0) {
+            sb.append(" in ").append(unitName(stepUnit));
+        }
+        if (placedCell >= 0) {
+            sb.append(": ").append(placedDigit).append(" goes in row ").append(placedCell / size + 1)
+                    .append(", column ").append(placedCell % size + 1);
+        } else {
+            sb.append(": removes candidates from ").append(eliminatedCount)
+                    .append(eliminatedCount == 1 ? " cell" : " cells");
+        }
+        return sb.toString();
+    }
+
+    String unitName(int unit) {
+        if (unit < size) {
+            return "row " + (unit + 1);
+        } else if (unit < 2 * size) {
+            return "column " + (unit - size + 1);
+        }
+        return "box " + (unit - 2 * size + 1);
+    }
+
+    private boolean nakedSingle() {
+        for (int cell = 0; cell < cells; ++cell) {
+            int mask = candidates[cell];
+            if (values[cell] == 0 && Integer.bitCount(mask) == 1) {
+                involved[involvedCount++] = cell;
+                stepDigits = mask;
+                placeStep(cell, Integer.numberOfTrailingZeros(mask) + 1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hiddenSingle() {
+        // Boxes first, the way most people scan
+        for (int i = 0; i < 3 * size; ++i) {
+            int u = (i + 2 * size) % (3 * size);
+            int once = 0, twice = 0;
+            for (int cell : units[u]) {
+                int mask = candidates[cell];
+                twice |= once & mask;
+                once |= mask;
+            }
+            int singles = once & ~twice;
+            if (singles != 0) {
+                int bit = singles & -singles;
+                for (int cell : units[u]) {
+                    if ((candidates[cell] & bit) != 0) {
+                        stepUnit = u;
+                        stepDigits = bit;
+                        involved[involvedCount++] = cell;
+                        placeStep(cell, Integer.numberOfTrailingZeros(bit) + 1);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // A digit confined to one row or column inside a box leaves the rest of that line
+    private boolean pointing() {
+        for (int b = 0; b < size; ++b) {
+            int u = 2 * size + b;
+            for (int bit = 1; bit <= allDigits; bit <<= 1) {
+                int rows = 0, cols = 0, count = 0;
+                for (int cell : units[u]) {
+                    if ((candidates[cell] & bit) != 0) {
+                        rows |= 1 << (cell / size);
+                        cols |= 1 << (cell % size);
+                        count++;
+                    }
+                }
+                if (count < 2) {
+                    continue;
+                }
+                int line = -1;
+                if (Integer.bitCount(rows) == 1) {
+                    line = Integer.numberOfTrailingZeros(rows);
+                } else if (Integer.bitCount(cols) == 1) {
+                    line = size + Integer.numberOfTrailingZeros(cols);
+                }
+                if (line >= 0 && eliminateOutside(line, u, bit)) {
+                    stepUnit = u;
+                    stepDigits = bit;
+                    addInvolved(u, bit);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // A digit confined to one box inside a row or column leaves the rest of that box
+    private boolean boxLineReduction() {
+        for (int u = 0; u < 2 * size; ++u) {
+            for (int bit = 1; bit <= allDigits; bit <<= 1) {
+                int boxes = 0, count = 0;
+                for (int cell : units[u]) {
+                    if ((candidates[cell] & bit) != 0) {
+                        boxes |= 1 << (unitsOf[cell][2] - 2 * size);
+                        count++;
+                    }
+                }
+                if (count < 2 || Integer.bitCount(boxes) != 1) {
+                    continue;
+                }
+                int box = 2 * size + Integer.numberOfTrailingZeros(boxes);
+                if (eliminateOutside(box, u, bit)) {
+                    stepUnit = u;
+                    stepDigits = bit;
+                    addInvolved(u, bit);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Remove the digit bit from the cells of target that are not in source
+    private boolean eliminateOutside(int target, int source, int bit) {
+        for (int cell : units[target]) {
+            if ((candidates[cell] & bit) != 0 && !inUnit(cell, source)) {
+                eliminate(cell, bit);
+            }
+        }
+        return eliminatedCount > 0;
+    }
+
+    private boolean inUnit(int cell, int unit) {
+        int[] of = unitsOf[cell];
+        return of[0] == unit || of[1] == unit || of[2] == unit;
+    }
+
+    // k cells of a unit holding only k candidates between them
+    private boolean nakedSubset(int k) {
+        subsetKind = NAKED;
+        for (int u = 0; u < 3 * size; ++u) {
+            poolCount = 0;
+            for (int cell : units[u]) {
+                int n = Integer.bitCount(candidates[cell]);
+                if (n >= 2 && n <= k) {
+                    pool[poolCount] = cell;
+                    poolMask[poolCount++] = candidates[cell];
+                }
+            }
+            subsetUnit = u;
+            if (poolCount >= k && subset(k, 0, 0, 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // k digits of a unit confined to the same k cells
+    private boolean hiddenSubset(int k) {
+        subsetKind = HIDDEN;
+        for (int u = 0; u < 3 * size; ++u) {
+            poolCount = 0;
+            for (int d = 0; d < size; ++d) {
+                int positions = 0;
+                for (int i = 0; i < size; ++i) {
+                    if ((candidates[units[u][i]] & (1 << d)) != 0) {
+                        positions |= 1 << i;
+                    }
+                }
+                int n = Integer.bitCount(positions);
+                if (n >= 2 && n <= k) {
+                    pool[poolCount] = d;
+                    poolMask[poolCount++] = positions;
+                }
+            }
+            subsetUnit = u;
+            if (poolCount >= k && subset(k, 0, 0, 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // k rows (or columns) holding a digit only in the same k columns (or rows)
+    private boolean fish(int k) {
+        subsetKind = FISH;
+        for (int d = 0; d < size; ++d) {
+            int bit = 1 << d;
+            for (int orientation = 0; orientation < 2; ++orientation) {
+                fishByRows = orientation == 0;
+                poolCount = 0;
+                for (int line = 0; line < size; ++line) {
+                    int u = fishByRows ? line : size + line;
+                    int positions = 0;
+                    for (int i = 0; i < size; ++i) {
+                        if ((candidates[units[u][i]] & bit) != 0) {
+                            positions |= 1 << i;
+                        }
+                    }
+                    int n = Integer.bitCount(positions);
+                    if (n >= 2 && n <= k) {
+                        pool[poolCount] = u;
+                        poolMask[poolCount++] = positions;
+                    }
+                }
+                subsetDigit = bit;
+                if (poolCount >= k && subset(k, 0, 0, 0)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Choose k pool items whose masks cover exactly k bits, then apply them
+    private boolean subset(int k, int start, int depth, int union) {
+        if (depth == k) {
+            return Integer.bitCount(union) == k && applySubset(k, union);
+        }
+        for (int i = start; i <= poolCount - (k - depth); ++i) {
+            int next = union | poolMask[i];
+            if (Integer.bitCount(next) <= k) {
+                combo[depth] = i;
+                if (subset(k, i + 1, depth + 1, next)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean applySubset(int k, int union) {
+        if (subsetKind == NAKED) {
+            for (int cell : units[subsetUnit]) {
+                if (values[cell] == 0 && (candidates[cell] & union) != 0 && !inCombo(k, cell)) {
+                    eliminate(cell, union);
+                }
+            }
+            if (eliminatedCount == 0) {
+                return false;
+            }
+            for (int i = 0; i < k; ++i) {
+                involved[involvedCount++] = pool[combo[i]];
+            }
+            stepDigits = union;
+        } else if (subsetKind == HIDDEN) {
+            int digits = 0;
+            for (int i = 0; i < k; ++i) {
+                digits |= 1 << pool[combo[i]];
+            }
+            for (int mask = union; mask != 0; mask &= mask - 1) {
+                int cell = units[subsetUnit][Integer.numberOfTrailingZeros(mask)];
+                if ((candidates[cell] & ~digits) != 0) {
+                    eliminate(cell, ~digits);
+                }
+            }
+            if (eliminatedCount == 0) {
+                return false;
+            }
+            for (int mask = union; mask != 0; mask &= mask - 1) {
+                involved[involvedCount++] = units[subsetUnit][Integer.numberOfTrailingZeros(mask)];
+            }
+            stepDigits = digits;
+        } else {
+            // Cover lines are the columns (or rows) named by the union
+            for (int mask = union; mask != 0; mask &= mask - 1) {
+                int cover = (fishByRows ? size : 0) + Integer.numberOfTrailingZeros(mask);
+                for (int cell : units[cover]) {
+                    int base = fishByRows ? unitsOf[cell][0] : unitsOf[cell][1];
+                    if ((candidates[cell] & subsetDigit) != 0 && !inCombo(k, base)) {
+                        eliminate(cell, subsetDigit);
+                    }
+                }
+            }
+            if (eliminatedCount == 0) {
+                return false;
+            }
+            for (int i = 0; i < k; ++i) {
+                for (int cell : units[pool[combo[i]]]) {
+                    if ((candidates[cell] & subsetDigit) != 0) {
+                        involved[involvedCount++] = cell;
+                    }
+                }
+            }
+            stepDigits = subsetDigit;
+            return true;
+        }
+        stepUnit = subsetUnit;
+        return true;
+    }
+
+    // True if the item (a cell or a line) is one of the chosen pool items
+    private boolean inCombo(int k, int item) {
+        for (int i = 0; i < k; ++i) {
+            if (pool[combo[i]] == item) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addInvolved(int unit, int bit) {
+        for (int cell : units[unit]) {
+            if ((candidates[cell] & bit) != 0) {
+                involved[involvedCount++] = cell;
+            }
+        }
+    }
+
+    private void eliminate(int cell, int mask) {
+        candidates[cell] &= ~mask;
+        eliminated[eliminatedCount++] = cell;
+    }
+
+    private void placeStep(int cell, int digit) {
+        placedCell = cell;
+        placedDigit = digit;
+        place(cell, digit);
+    }
+}
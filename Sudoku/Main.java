@@ -5,6 +5,7 @@ import javax.swing.*;
 public class Main {
     public static void main(String[] args) {
         System.out.println("Sudoku");
+        AssetPreloader.preloadAll(); // in parallel with building the window
         SwingUtilities.invokeLater(() -> new WelcomeScreen());
     }
 }
@@ -0,0 +1,220 @@
+package Sudoku;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The MoveJournal class records every change to the board as one packed int,
+ * so undo and redo go back and forth through the game without any object per
+ * move. A player action that changes several cells (a digit that also strips
+ * pencil marks from its peers, say) is a run of moves; every move but the
+ * first of a run has the CONTINUES bit set, and undo and redo take whole runs.
+ *
+ * Moves live in a ring of ints that doubles when full, so depth is unlimited
+ * unless a limit is set, in which case the oldest action is dropped whole,
+ * every move of its run, to make room. An action longer than the limit on
+ * its own keeps only its last moves, and undo stops at the first of them.
+ *
+ * Packed move:
+ * <pre>
+ *   bits  0-9   cell (row * size + col)
+ *   bits 10-14  old value
+ *   bits 15-19  new value
+ *   bits 20-22  kind
+ *   bit  23     CONTINUES: part of the same action as the move before
+ * </pre>
+ */
+public class MoveJournal {
+    /** A digit entered (new value) or cleared (new value 0) by the player */
+    public static final int ENTRY = 0;
+    /** A digit filled in by a hint */
+    public static final int HINT = 1;
+    /** The pencil mark for the digit in new value was toggled */
+    public static final int NOTE = 2;
+
+    public static final int CONTINUES = 1 << 23;
+    public static final int MAX_CELLS = 1 << 10;
+    public static final int MAX_VALUE = (1 << 5) - 1;
+
+    private int[] ring = new int[64];
+    private int head;     // index in ring of the oldest move
+    private int count;    // moves stored
+    private int position; // moves [0, position) are applied, the rest can be redone
+    private int limit;    // 0 for unlimited
+
+    public MoveJournal() {
+        this(0);
+    }
+
+    /** A journal keeping at most limit moves, or any number if limit is 0 */
+    public MoveJournal(int limit) {
+        this.limit = limit;
+    }
+
+    public static int pack(int kind, int cell, int oldValue, int newValue) {
+        return kind << 20 | newValue << 15 | oldValue << 10 | cell;
+    }
+
+    public static int kind(int move) {
+        return move >>> 20 & 7;
+    }
+
+    public static int cell(int move) {
+        return move & (MAX_CELLS - 1);
+    }
+
+    public static int oldValue(int move) {
+        return move >>> 10 & MAX_VALUE;
+    }
+
+    public static int newValue(int move) {
+        return move >>> 15 & MAX_VALUE;
+    }
+
+    public static boolean continues(int move) {
+        return (move & CONTINUES) != 0;
+    }
+
+    /** Forget every move */
+    public void clear() {
+        head = 0;
+        count = 0;
+        position = 0;
+    }
+
+    /**
+     * Record a move that has just been applied. It starts a new action unless
+     * sameAction is true. Moves that could still be redone are dropped.
+     */
+    public void add(int move, boolean sameAction) {
+        count = position;
+        if (limit > 0 && count == limit) {
+            // Drop the oldest action, never half of one
+            do {
+                head = (head + 1) % ring.length;
+                count--;
+            } while (count > 0 && continues(ring[head]));
+            if (count == 0) {
+                sameAction = false; // the action it continued was longer than the limit
+            }
+        } else if (count == ring.length) {
+            grow();
+        }
+        ring[(head + count) % ring.length] = sameAction ? move | CONTINUES : move & ~CONTINUES;
+        count++;
+        position = count;
+    }
+
+    public void add(int kind, int cell, int oldValue, int newValue, boolean sameAction) {
+        add(pack(kind, cell, oldValue, newValue), sameAction);
+    }
+
+    public boolean canUndo() {
+        return position > 0;
+    }
+
+    public boolean canRedo() {
+        return position < count;
+    }
+
+    /**
+     * Step back over one move and return it, to be reverted by the caller;
+     * keep calling while the returned move continues() to undo a whole action.
+     */
+    public int undo() {
+        if (position == 0) {
+            throw new IllegalStateException("Nothing to undo");
+        }
+        return get(--position);
+    }
+
+    /**
+     * Step forward over one move and return it, to be applied again by the
+     * caller; keep calling while peekRedo() continues() to redo a whole action.
+     */
+    public int redo() {
+        if (position == count) {
+            throw new IllegalStateException("Nothing to redo");
+        }
+        return get(position++);
+    }
+
+    /** The move redo() would return next */
+    public int peekRedo() {
+        return get(position);
+    }
+
+    /** The index-th oldest move kept */
+    public int get(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Move " + index + " of " + count);
+        }
+        return ring[(head + index) % ring.length];
+    }
+
+    /** Number of moves kept, including those that can be redone */
+    public int size() {
+        return count;
+    }
+
+    /** Number of moves currently applied */
+    public int position() {
+        return position;
+    }
+
+    /** Write the moves and the position */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(count);
+        out.writeInt(position);
+        for (int i = 0; i < count; ++i) {
+            out.writeInt(get(i));
+        }
+    }
+
+    /**
+     * Replace the moves and position with those written by writeTo() for a
+     * size x size board. Every move is checked against the board as it is
+     * read, so a corrupt journal fails here rather than on undo.
+     */
+    public void readFrom(DataInput in, int size) throws IOException {
+        int moves = in.readInt();
+        int applied = in.readInt();
+        if (moves < 0 || applied < 0 || applied > moves) {
+            throw new IOException("Corrupt move journal");
+        }
+        clear();
+        for (int i = 0; i < moves; ++i) {
+            int move = in.readInt();
+            if (!isValid(move, size)) {
+                throw new IOException("Corrupt move " + i + " in the journal");
+            }
+            if (count == ring.length) {
+                grow(); // as moves arrive, so a bad count cannot allocate much
+            }
+            ring[count++] = move;
+        }
+        position = applied;
+    }
+
+    // True if the move fits a size x size board
+    private static boolean isValid(int move, int size) {
+        int kind = kind(move);
+        if ((move & ~(CONTINUES | CONTINUES - 1)) != 0 || kind > NOTE || cell(move) >= size * size
+                || oldValue(move) > size || newValue(move) > size) {
+            return false;
+        }
+        // A note toggles a digit; a hint always fills one in
+        return kind == ENTRY || newValue(move) > 0;
+    }
+
+    // Double the ring, unrolling it so the oldest move is at index 0
+    private void grow() {
+        int[] bigger = new int[ring.length * 2];
+        for (int i = 0; i < count; ++i) {
+            bigger[i] = ring[(head + i) % ring.length];
+        }
+        ring = bigger;
+        head = 0;
+    }
+}
@@ -1,17 +1,210 @@
 package Sudoku;
 
+import java.util.Random;
+
 public class Puzzle {
-    int[][] numbers = new int[SudokuConstants.GRID_SIZE][SudokuConstants.GRID_SIZE];
-    boolean[][] isGiven = new boolean[SudokuConstants.GRID_SIZE][SudokuConstants.GRID_SIZE];
-    int[][] solution = new int[SudokuConstants.GRID_SIZE][SudokuConstants.GRID_SIZE];
-    
+    /** Number of rows, columns and digits: GRID_SIZE, or 16 or 25 for larger boards */
+    final int size;
+    int[][] numbers;
+    boolean[][] isGiven;
+    int[][] solution;
+
+    /** Upper bound on fresh solutions tried when looking for a unique puzzle */
+    public static final int MAX_UNIQUE_ATTEMPTS = 10;
+    /**
+     * Search nodes allowed for one uniqueness check on boards larger than
+     * GRID_SIZE. A check that runs out keeps the clue, so puzzles stay unique
+     * and generation time stays bounded, at the cost of a few extra clues.
+     */
+    public static final long LARGE_CHECK_NODES = 500;
+    /**
+     * Search nodes allowed for countSolutions() and solve(). Standard puzzles
+     * need a few hundred and 16x16 ones a few thousand; a sparse 25x25 board
+     * can need millions, so the search gives up there after about 150 ms
+     * instead of running for seconds.
+     */
+    public static final long SOLVE_NODES = 50_000;
+
+    private final Random random;
+    private final ConstraintGrid grid;
+    private DancingLinksSolver solver; // created on first use, pooled puzzles rarely need it
+    private final int cells;
+    private final int[] removalOrder;
+    private int removalCount; // length of removalOrder in use, less than cells for a mask
+    private int nextRemoval; // position in removalOrder of the next cell to try
+    private RemovalPattern pattern = RemovalPattern.RANDOM;
+    private boolean[] mask; // cells to blank for RemovalPattern.MASK
+    private final int[] orbit = new int[2];
+    private final int[] orbitDigits = new int[2];
+    // Completed grid of the current attempt, before any cell is blanked
+    private final int[] filled;
+
+    // Cached grade, -1 until computed
+    private int rating = -1;
+    private Technique hardest;
+
+    public Puzzle() {
+        this(new Random());
+    }
+
+    /** Construct a puzzle that draws all its randomness from the given generator */
+    public Puzzle(Random random) {
+        this(SudokuConstants.GRID_SIZE, random);
+    }
+
+    /** Construct a size x size puzzle (size 9, 16 or 25) */
+    public Puzzle(int size, Random random) {
+        this.size = size;
+        this.random = random;
+        this.grid = new ConstraintGrid(size, random);
+        this.cells = size * size;
+        numbers = new int[size][size];
+        isGiven = new boolean[size][size];
+        solution = new int[size][size];
+        removalOrder = new int[cells];
+        filled = new int[cells];
+    }
+
+    /** Generate a new puzzle with a unique solution */
     public void newPuzzle(int difficulty) {
+        newPuzzle(difficulty, true);
+    }
+
+    public RemovalPattern getRemovalPattern() {
+        return pattern;
+    }
+
+    /**
+     * Choose how newPuzzle() blanks cells. MASK needs a template from
+     * setRemovalMask() first.
+     */
+    public void setRemovalPattern(RemovalPattern pattern) {
+        if (pattern == RemovalPattern.MASK && mask == null) {
+            throw new IllegalStateException("Set a removal mask first");
+        }
+        this.pattern = pattern;
+    }
+
+    /**
+     * Blank only the cells that are true in the given size x size template,
+     * and switch to RemovalPattern.MASK. newPuzzle() then tries to blank all
+     * of them, whatever difficulty it is asked for, and keeps the closest
+     * unique attempt.
+     */
+    public void setRemovalMask(boolean[][] blanks) {
+        if (blanks.length != size) {
+            throw new IllegalArgumentException("Mask must have " + size + " rows");
+        }
+        mask = new boolean[cells];
+        for (int i = 0; i < size; i++) {
+            if (blanks[i].length != size) {
+                throw new IllegalArgumentException("Mask must have " + size + " columns");
+            }
+            for (int j = 0; j < size; j++) {
+                mask[i * size + j] = blanks[i][j];
+            }
+        }
+        pattern = RemovalPattern.MASK;
+    }
+
+    /**
+     * Generate a new puzzle with at least difficulty cells blanked. On boards
+     * larger than GRID_SIZE the count is scaled up to the same share of cells.
+     *
+     * If unique is true, a cell is only blanked when the puzzle keeps a single
+     * solution. When difficulty is one of the SudokuConstants levels the puzzle
+     * is also graded, and more cells are blanked until the techniques it needs
+     * match that level (see DifficultyGrader.levelOf); the techniques are only
+     * graded on standard boards. Cells are blanked following the removal
+     * pattern, a whole orbit at a time. Sparse boards may stop
+     * short of either goal; after MAX_UNIQUE_ATTEMPTS fresh grids the closest
+     * attempt is kept.
+     */
+    public void newPuzzle(int difficulty, boolean unique) {
+        boolean graded = size == SudokuConstants.GRID_SIZE && DifficultyGrader.isLevel(difficulty)
+                && pattern != RemovalPattern.MASK;
+        difficulty = difficulty * cells / ConstraintGrid.CELLS;
+        if (pattern == RemovalPattern.MASK) {
+            difficulty = 0;
+            for (boolean blank : mask) {
+                difficulty += blank ? 1 : 0;
+            }
+        }
+        if (!unique) {
+            newRandomPuzzle(difficulty);
+            return;
+        }
+
+        rating = -1;
+        DifficultyGrader grader = DifficultyGrader.forCurrentThread();
+        int bestScore = Integer.MAX_VALUE;
+        // Large boards spend their time on a single attempt
+        int attempts = size == SudokuConstants.GRID_SIZE ? MAX_UNIQUE_ATTEMPTS : 1;
+        for (int attempt = 0; attempt < attempts && bestScore > 0; attempt++) {
+            generateSolution();
+            shuffleRemovalOrder();
+            int removed = removeUniquely(difficulty);
+            int level = difficulty;
+            if (graded) {
+                grader.grade(grid.values, filled);
+                level = DifficultyGrader.levelOf(grader.getHardest());
+                // Too easy: keep blanking, one cell at a time, while cells are left
+                while (level < difficulty && nextRemoval < removalCount) {
+                    int more = removeUniquely(removed + 1);
+                    if (more == removed) {
+                        break;
+                    }
+                    removed = more;
+                    grader.grade(grid.values, filled);
+                    level = DifficultyGrader.levelOf(grader.getHardest());
+                }
+            }
+
+            // 0 is a perfect match; otherwise prefer the right level, then more blanks
+            int score = Math.abs(level - difficulty) * cells + Math.max(0, difficulty - removed);
+            if (score < bestScore) {
+                bestScore = score;
+                copyFromGrid();
+                if (graded) {
+                    rating = grader.getRating();
+                    hardest = grader.getHardest();
+                }
+            }
+        }
+    }
+
+    /** Rating of this puzzle from DifficultyGrader, computed once and cached */
+    public int getRating() {
+        if (rating < 0) {
+            DifficultyGrader grader = DifficultyGrader.forCurrentThread(size);
+            rating = grader.grade(this);
+            hardest = grader.getHardest();
+        }
+        return rating;
+    }
+
+    /** Hardest technique needed to solve this puzzle, computed once and cached */
+    public Technique getHardestTechnique() {
+        getRating();
+        return hardest;
+    }
+
+    /** Set the cached grade, e.g. from a stored puzzle; a negative rating clears it */
+    void setGrade(int rating, Technique hardest) {
+        this.rating = rating;
+        this.hardest = hardest;
+    }
+
+    private void newRandomPuzzle(int difficulty) {
+        rating = -1;
+
         // Generate solution first
         generateSolution();
+        copySolution();
         
         // Copy solution to numbers
-        for (int i = 0; i < SudokuConstants.GRID_SIZE; i++) {
-            for (int j = 0; j < SudokuConstants.GRID_SIZE; j++) {
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
                 numbers[i][j] = solution[i][j];
                 isGiven[i][j] = true;
             }
@@ -20,8 +213,8 @@ public class Puzzle {
         // Remove numbers according to difficulty
         int cellsToRemove = difficulty;
         while (cellsToRemove > 0) {
-            int row = (int)(Math.random() * SudokuConstants.GRID_SIZE);
-            int col = (int)(Math.random() * SudokuConstants.GRID_SIZE);
+            int row = random.nextInt(size);
+            int col = random.nextInt(size);
             if (numbers[row][col] != 0) {
                 numbers[row][col] = 0;
                 isGiven[row][col] = false;
@@ -30,112 +223,141 @@ public class Puzzle {
         }
     }
 
-    private void generateSolution() {
-        // Clear the grid
-        for (int i = 0; i < SudokuConstants.GRID_SIZE; i++) {
-            for (int j = 0; j < SudokuConstants.GRID_SIZE; j++) {
-                solution[i][j] = 0;
+    // Shuffle the cells that may be blanked; a mask limits them to its own cells
+    private void shuffleRemovalOrder() {
+        removalCount = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (pattern == RemovalPattern.MASK && !mask[cell]) {
+                continue;
             }
+            int j = random.nextInt(removalCount + 1);
+            removalOrder[removalCount] = removalOrder[j];
+            removalOrder[j] = cell;
+            removalCount++;
         }
-        
-        // Fill diagonal 3x3 boxes first (they are independent)
-        fillDiagonalBoxes();
-        
-        // Fill remaining cells
-        fillRemaining(0, SudokuConstants.SUBGRID_SIZE);
+        nextRemoval = 0;
     }
 
-    private void fillDiagonalBoxes() {
-        for (int box = 0; box < SudokuConstants.GRID_SIZE; box += SudokuConstants.SUBGRID_SIZE) {
-            fillBox(box, box);
-        }
-    }
-
-    private void fillBox(int row, int col) {
-        int[] numbers = {1, 2, 3, 4, 5, 6, 7, 8, 9};
-        shuffleArray(numbers);
-        int num = 0;
-        
-        for (int i = 0; i < SudokuConstants.SUBGRID_SIZE; i++) {
-            for (int j = 0; j < SudokuConstants.SUBGRID_SIZE; j++) {
-                solution[row + i][col + j] = numbers[num++];
+    /**
+     * Blank cells of the grid in the shuffled order until target cells are
+     * blank, keeping a cell only when removing it would open a second solution.
+     * Each cell is blanked together with the rest of its orbit under the
+     * removal pattern, and the orbit is kept whole if any of its cells is
+     * needed. The grid keeps its masks between removals, so each check is one
+     * early-exit search from the current state, and a later call carries on
+     * where the previous one stopped. Returns the number of blank cells.
+     */
+    private int removeUniquely(int target) {
+        int removed = cells - countClues();
+        while (nextRemoval < removalCount && removed < target) {
+            int cell = removalOrder[nextRemoval++];
+            if (grid.values[cell] == 0) {
+                continue; // already blanked with its orbit
+            }
+            int length = pattern.orbit(cell, size, orbit);
+            for (int i = 0; i < length; i++) {
+                orbitDigits[i] = grid.values[orbit[i]];
+                grid.unplace(orbit[i]);
+            }
+            // A second solution would have to differ in one of these cells
+            boolean unique = true;
+            for (int i = 0; i < length && unique; i++) {
+                unique = !hasSolutionWithout(orbit[i], orbitDigits[i]);
+            }
+            if (unique) {
+                removed += length;
+            } else {
+                for (int i = 0; i < length; i++) {
+                    grid.place(orbit[i], orbitDigits[i]); // needed to stay unique, put them back
+                }
             }
         }
+        return removed;
     }
 
-    private void shuffleArray(int[] arr) {
-        for (int i = arr.length - 1; i > 0; i--) {
-            int j = (int)(Math.random() * (i + 1));
-            int temp = arr[i];
-            arr[i] = arr[j];
-            arr[j] = temp;
+    // A cell left with a single candidate is forced by the digits around it,
+    // which the grid's masks show without any search. Otherwise standard
+    // boards use the grid's own search, which keeps its masks between
+    // removals. Larger boards need the stronger column choice of Dancing Links
+    // (it also spots digits with a single place left in a unit) and a node
+    // budget to stay fast.
+    private boolean hasSolutionWithout(int cell, int digit) {
+        if (grid.candidates(cell) == 1 << (digit - 1)) {
+            return false;
+        }
+        if (size == SudokuConstants.GRID_SIZE) {
+            return grid.hasSolutionWithout(cell, digit);
         }
+        return getSolver().hasSolutionWithout(grid.values, cell, digit, LARGE_CHECK_NODES);
     }
 
-    private boolean fillRemaining(int row, int col) {
-        if (col >= SudokuConstants.GRID_SIZE && row < SudokuConstants.GRID_SIZE - 1) {
-            row++;
-            col = 0;
-        }
-        if (row >= SudokuConstants.GRID_SIZE && col >= SudokuConstants.GRID_SIZE) {
-            return true;
-        }
-        if (row < SudokuConstants.SUBGRID_SIZE) {
-            if (col < SudokuConstants.SUBGRID_SIZE) {
-                col = SudokuConstants.SUBGRID_SIZE;
-            }
-        } else if (row < SudokuConstants.GRID_SIZE - SudokuConstants.SUBGRID_SIZE) {
-            if (col == (int)(row / SudokuConstants.SUBGRID_SIZE) * SudokuConstants.SUBGRID_SIZE) {
-                col += SudokuConstants.SUBGRID_SIZE;
-            }
-        } else {
-            if (col == SudokuConstants.GRID_SIZE - SudokuConstants.SUBGRID_SIZE) {
-                row++;
-                col = 0;
-                if (row >= SudokuConstants.GRID_SIZE) {
-                    return true;
-                }
+    private int countClues() {
+        int clues = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (grid.values[cell] != 0) {
+                clues++;
             }
         }
+        return clues;
+    }
 
-        for (int num = 1; num <= SudokuConstants.GRID_SIZE; num++) {
-            if (isSafe(row, col, num)) {
-                solution[row][col] = num;
-                if (fillRemaining(row, col + 1)) {
-                    return true;
-                }
-                solution[row][col] = 0;
+    // Take numbers and isGiven from the grid after removeUniquely()
+    private void copyFromGrid() {
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int digit = grid.values[i * size + j];
+                numbers[i][j] = digit;
+                isGiven[i][j] = digit != 0;
             }
         }
-        return false;
+        copySolution();
     }
 
-    private boolean isSafe(int row, int col, int num) {
-        // Check row
-        for (int x = 0; x < SudokuConstants.GRID_SIZE; x++) {
-            if (solution[row][x] == num) {
-                return false;
+    private void copySolution() {
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                solution[i][j] = filled[i * size + j];
             }
         }
+    }
+
+    /**
+     * Count the solutions of the current numbers, stopping once limit are
+     * found. Returns -1 if the search runs out of SOLVE_NODES first.
+     */
+    public int countSolutions(int limit) {
+        return getSolver().countSolutions(numbers, limit, SOLVE_NODES);
+    }
 
-        // Check column
-        for (int x = 0; x < SudokuConstants.GRID_SIZE; x++) {
-            if (solution[x][col] == num) {
-                return false;
+    /**
+     * Solve the current numbers and store the result in solution. Returns
+     * false, leaving solution untouched, if there is no solution, more than
+     * one, or the search runs out of SOLVE_NODES before it can tell.
+     */
+    public boolean solve() {
+        DancingLinksSolver solver = getSolver();
+        if (solver.countSolutions(numbers, 2, SOLVE_NODES) != 1) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                solution[i][j] = solver.solution[i * size + j];
             }
         }
+        return true;
+    }
 
-        // Check 3x3 box
-        int startRow = row - row % SudokuConstants.SUBGRID_SIZE;
-        int startCol = col - col % SudokuConstants.SUBGRID_SIZE;
-        for (int i = 0; i < SudokuConstants.SUBGRID_SIZE; i++) {
-            for (int j = 0; j < SudokuConstants.SUBGRID_SIZE; j++) {
-                if (solution[i + startRow][j + startCol] == num) {
-                    return false;
-                }
-            }
+    private DancingLinksSolver getSolver() {
+        if (solver == null) {
+            solver = new DancingLinksSolver(size);
         }
+        return solver;
+    }
 
-        return true;
+    private void generateSolution() {
+        // Fill the grid with the bitmask constraint engine
+        grid.clear();
+        grid.fill();
+        System.arraycopy(grid.values, 0, filled, 0, cells);
     }
 }
\ No newline at end of file
@@ -0,0 +1,339 @@
+package Sudoku;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * The PuzzleBank class reads a compact binary file of pre-generated puzzles
+ * through a memory-mapped FileChannel. Nothing is parsed up front: a puzzle is
+ * decoded straight from the mapping when it is asked for, so a bank of
+ * millions of puzzles costs almost no heap. A single mapping stops at 2 GB,
+ * so the records are mapped in segments of SEGMENT_RECORDS whole records,
+ * and a bank can hold as many records as its int index counts.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *   header, HEADER_SIZE bytes
+ *     int    MAGIC
+ *     short  VERSION
+ *     byte   grid size
+ *     byte   number of index entries (at most MAX_LEVELS)
+ *     int    record size
+ *     int    total records
+ *     index entries: int difficulty, int first record, int record count
+ *   records, sorted by difficulty, RECORD_SIZE bytes each
+ *     byte   difficulty (cells blanked when generated)
+ *     byte   number of clues
+ *     short  grade: hardest Technique ordinal (4 bits), rating (12 bits)
+ *     bytes  given-cell bitmask, bit i set if cell i is a clue
+ *     bytes  solution digits, 4 bits each, two cells per byte
+ * </pre>
+ */
+public class PuzzleBank {
+    public static final int MAGIC = 0x53444B42; // "SDKB"
+    public static final short VERSION = 1;
+    public static final int MAX_LEVELS = 16;
+    public static final int HEADER_SIZE = 256;
+
+    static final int MASK_BYTES = (ConstraintGrid.CELLS + 7) / 8;
+    static final int DIGIT_BYTES = (ConstraintGrid.CELLS + 1) / 2;
+    public static final int RECORD_SIZE = 4 + MASK_BYTES + DIGIT_BYTES;
+    /** Records per mapped segment, a little under 1 GB of them */
+    static final int SEGMENT_RECORDS = (1 << 30) / RECORD_SIZE;
+    private static final Technique[] TECHNIQUES = Technique.values();
+
+    /** Bank opened by GameBoardPanel, from the sudoku.bank system property */
+    public static final String DEFAULT_PATH = System.getProperty("sudoku.bank", "Sudoku/puzzles.bank");
+
+    private static PuzzleBank defaultBank;
+    private static boolean defaultLoaded;
+
+    private final MappedByteBuffer[] segments; // records, SEGMENT_RECORDS a segment
+    private final int[] levelDifficulty;
+    private final int[] levelFirst;
+    private final int[] levelCount;
+    private final Random random = new Random();
+
+    private PuzzleBank(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            throw new IOException("Not a puzzle bank: too short");
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt(0) != MAGIC || header.getShort(4) != VERSION
+                || header.get(6) != SudokuConstants.GRID_SIZE || header.getInt(8) != RECORD_SIZE) {
+            throw new IOException("Not a puzzle bank for this version and grid size");
+        }
+        int total = header.getInt(12);
+        if (total < 0 || channel.size() < HEADER_SIZE + (long) total * RECORD_SIZE) {
+            throw new IOException("Puzzle bank is cut short");
+        }
+        int levels = header.get(7);
+        if (levels < 0 || levels > MAX_LEVELS) {
+            throw new IOException("Corrupt puzzle bank index");
+        }
+        levelDifficulty = new int[levels];
+        levelFirst = new int[levels];
+        levelCount = new int[levels];
+        for (int i = 0; i < levels; ++i) {
+            int at = 16 + i * 12;
+            levelDifficulty[i] = header.getInt(at);
+            levelFirst[i] = header.getInt(at + 4);
+            levelCount[i] = header.getInt(at + 8);
+            if (levelFirst[i] < 0 || levelCount[i] < 0 || (long) levelFirst[i] + levelCount[i] > total) {
+                throw new IOException("Corrupt puzzle bank index");
+            }
+        }
+        segments = new MappedByteBuffer[(int) (((long) total + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS)];
+        for (int s = 0; s < segments.length; ++s) {
+            long first = (long) s * SEGMENT_RECORDS;
+            long records = Math.min(SEGMENT_RECORDS, total - first);
+            segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE + first * RECORD_SIZE, records * RECORD_SIZE);
+        }
+    }
+
+    /** Map the bank file into memory */
+    public static PuzzleBank open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mappings stay valid after the channel is closed
+            return new PuzzleBank(channel);
+        }
+    }
+
+    /** Returns the bank at DEFAULT_PATH, or null if there is none */
+    public static synchronized PuzzleBank getDefault() {
+        if (!defaultLoaded) {
+            defaultLoaded = true;
+            Path path = Paths.get(DEFAULT_PATH);
+            if (Files.isRegularFile(path)) {
+                try {
+                    defaultBank = open(path);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return defaultBank;
+    }
+
+    /** Number of stored puzzles of the given difficulty */
+    public int count(int difficulty) {
+        int level = levelOf(difficulty);
+        return level < 0 ? 0 : levelCount[level];
+    }
+
+    /**
+     * Decode the index-th puzzle of the given difficulty into the puzzle's
+     * numbers, isGiven and solution arrays. Throws IOException if the record
+     * is corrupt, leaving the puzzle half written.
+     */
+    public void load(int difficulty, int index, Puzzle puzzle) throws IOException {
+        int level = levelOf(difficulty);
+        if (level < 0 || index < 0 || index >= levelCount[level]) {
+            throw new IndexOutOfBoundsException("No puzzle " + index + " for difficulty " + difficulty);
+        }
+        if (puzzle.size != SudokuConstants.GRID_SIZE) {
+            throw new IllegalArgumentException("A bank holds " + SudokuConstants.GRID_SIZE + " x "
+                    + SudokuConstants.GRID_SIZE + " puzzles only");
+        }
+        int record = levelFirst[level] + index; // within the total, checked on open
+        MappedByteBuffer data = segments[record / SEGMENT_RECORDS];
+        int base = record % SEGMENT_RECORDS * RECORD_SIZE;
+        int maskAt = base + 4;
+        int digitsAt = maskAt + MASK_BYTES;
+        for (int cell = 0; cell < ConstraintGrid.CELLS; ++cell) {
+            int packed = data.get(digitsAt + (cell >> 1));
+            int digit = (cell & 1) == 0 ? (packed >> 4) & 0xF : packed & 0xF;
+            boolean given = (data.get(maskAt + (cell >> 3)) & (1 << (cell & 7))) != 0;
+            if (digit < 1 || digit > SudokuConstants.GRID_SIZE) {
+                throw new IOException("Corrupt puzzle bank record " + record);
+            }
+            int row = cell / SudokuConstants.GRID_SIZE;
+            int col = cell % SudokuConstants.GRID_SIZE;
+            puzzle.solution[row][col] = digit;
+            puzzle.numbers[row][col] = given ? digit : 0;
+            puzzle.isGiven[row][col] = given;
+        }
+        int grade = data.getShort(base + 2) & 0xFFFF;
+        if (grade >>> 12 >= TECHNIQUES.length) {
+            throw new IOException("Corrupt puzzle bank record " + record);
+        }
+        puzzle.setGrade(grade & 0xFFF, TECHNIQUES[grade >>> 12]);
+    }
+
+    /** Returns a randomly chosen stored puzzle, or null if there is none of that difficulty */
+    public Puzzle random(int difficulty) throws IOException {
+        Puzzle puzzle = new Puzzle();
+        return random(difficulty, puzzle) ? puzzle : null;
+    }
+
+    /**
+     * Decode a randomly chosen stored puzzle into the given one, so drawing
+     * puzzles allocates nothing. Returns false, leaving the puzzle as it was,
+     * if there is none of that difficulty.
+     */
+    public boolean random(int difficulty, Puzzle puzzle) throws IOException {
+        int count = count(difficulty);
+        if (count == 0) {
+            return false;
+        }
+        int index;
+        synchronized (random) {
+            index = random.nextInt(count);
+        }
+        load(difficulty, index, puzzle);
+        return true;
+    }
+
+    private int levelOf(int difficulty) {
+        for (int i = 0; i < levelDifficulty.length; ++i) {
+            if (levelDifficulty[i] == difficulty) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Pack a puzzle's grade into the 16-bit grade field */
+    static int packGrade(Puzzle puzzle) {
+        int rating = Math.min(puzzle.getRating(), 0xFFF);
+        return puzzle.getHardestTechnique().ordinal() << 12 | rating;
+    }
+
+    /** Encode one puzzle as a RECORD_SIZE record at the buffer's position */
+    static void encode(Puzzle puzzle, int difficulty, int grade, ByteBuffer out) {
+        int base = out.position();
+        int clues = 0;
+        for (int i = 4; i < RECORD_SIZE; ++i) {
+            out.put(base + i, (byte) 0);
+        }
+        for (int cell = 0; cell < ConstraintGrid.CELLS; ++cell) {
+            int row = cell / SudokuConstants.GRID_SIZE;
+            int col = cell % SudokuConstants.GRID_SIZE;
+            if (puzzle.isGiven[row][col]) {
+                int at = base + 4 + (cell >> 3);
+                out.put(at, (byte) (out.get(at) | (1 << (cell & 7))));
+                clues++;
+            }
+            int at = base + 4 + MASK_BYTES + (cell >> 1);
+            int digit = puzzle.solution[row][col];
+            out.put(at, (byte) (out.get(at) | ((cell & 1) == 0 ? digit << 4 : digit)));
+        }
+        out.put(base, (byte) difficulty);
+        out.put(base + 1, (byte) clues);
+        out.putShort(base + 2, (short) grade);
+        out.position(base + RECORD_SIZE);
+    }
+
+    /**
+     * Writes a bank file. Records of each difficulty are spooled to their own
+     * temporary file next to the target as they arrive, then joined behind the
+     * header on close(), so any number of puzzles can be written.
+     * Also usable as the Sink of a PuzzleBatch.
+     */
+    public static class Writer implements PuzzleBatch.Sink, AutoCloseable {
+        private final Path path;
+        private final TreeMap<Integer, FileChannel> spools = new TreeMap<>();
+        private final TreeMap<Integer, Path> spoolPaths = new TreeMap<>();
+        private final ByteBuffer single = ByteBuffer.allocate(RECORD_SIZE);
+
+        public Writer(Path path) {
+            this.path = path;
+        }
+
+        /** Append one puzzle, grading it if it has not been graded yet */
+        public synchronized void add(Puzzle puzzle, int difficulty) throws IOException {
+            single.clear();
+            PuzzleBank.encode(puzzle, difficulty, packGrade(puzzle), single);
+            single.flip();
+            write(difficulty, single);
+        }
+
+        @Override
+        public int recordSize() {
+            return RECORD_SIZE;
+        }
+
+        @Override
+        public void encode(Puzzle puzzle, int difficulty, ByteBuffer out) {
+            PuzzleBank.encode(puzzle, difficulty, packGrade(puzzle), out);
+        }
+
+        @Override
+        public synchronized void write(int difficulty, ByteBuffer chunk) throws IOException {
+            FileChannel spool = spools.get(difficulty);
+            if (spool == null) {
+                if (spools.size() == MAX_LEVELS) {
+                    throw new IOException("A bank holds at most " + MAX_LEVELS + " difficulties");
+                }
+                Path spoolPath = Files.createTempFile(path.toAbsolutePath().getParent(), "bank", ".tmp");
+                spool = FileChannel.open(spoolPath, StandardOpenOption.WRITE, StandardOpenOption.READ);
+                spools.put(difficulty, spool);
+                spoolPaths.put(difficulty, spoolPath);
+            }
+            while (chunk.hasRemaining()) {
+                spool.write(chunk);
+            }
+        }
+
+        /** Write the header, join the spooled records and delete the spools */
+        @Override
+        public synchronized void close() throws IOException {
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+                header.putInt(MAGIC);
+                header.putShort(VERSION);
+                header.put((byte) SudokuConstants.GRID_SIZE);
+                header.put((byte) spools.size());
+                header.putInt(RECORD_SIZE);
+                header.putInt(0); // total, filled in below
+                int total = 0;
+                for (Integer difficulty : spools.keySet()) {
+                    long records = spools.get(difficulty).size() / RECORD_SIZE;
+                    if (total + records > Integer.MAX_VALUE) {
+                        throw new IOException("A bank holds at most " + Integer.MAX_VALUE + " puzzles");
+                    }
+                    int count = (int) records;
+                    header.putInt(difficulty);
+                    header.putInt(total);
+                    header.putInt(count);
+                    total += count;
+                }
+                header.putInt(12, total);
+                header.clear();
+
+                try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    while (header.hasRemaining()) {
+                        out.write(header);
+                    }
+                    for (FileChannel spool : spools.values()) {
+                        long size = spool.size();
+                        long done = 0;
+                        while (done < size) {
+                            done += spool.transferTo(done, size - done, out);
+                        }
+                    }
+                }
+            } finally {
+                for (FileChannel spool : spools.values()) {
+                    spool.close();
+                }
+                for (Path spoolPath : spoolPaths.values()) {
+                    Files.deleteIfExists(spoolPath);
+                }
+                spools.clear();
+                spoolPaths.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package Sudoku;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The PuzzleBatch class generates large numbers of puzzles in parallel on a
+ * work-stealing ForkJoinPool and streams them to a Sink.
+ *
+ * The work is split into chunks of CHUNK_SIZE puzzles. Every chunk gets its own
+ * Puzzle and its own Random seeded from the batch seed and the chunk number, so
+ * workers share no mutable state and a batch is reproducible from its seed
+ * (chunks may reach the output in any order).
+ */
+public class PuzzleBatch {
+    /** Number of puzzles generated and written as one unit of work */
+    public static final int CHUNK_SIZE = 256;
+
+    /**
+     * Destination of a batch. Puzzles are encoded into fixed-size records in a
+     * per-chunk buffer by the worker threads; write() must be thread-safe.
+     */
+    public interface Sink {
+        int recordSize();
+
+        void encode(Puzzle puzzle, int difficulty, ByteBuffer out);
+
+        void write(int difficulty, ByteBuffer chunk) throws IOException;
+    }
+
+    /** Length of a text line: puzzle digits, a comma, solution digits, newline */
+    public static final int LINE_SIZE = 2 * ConstraintGrid.CELLS + 2;
+
+    private final int difficulty;
+    private final long seed;
+    private final int parallelism;
+
+    // Per worker thread: puzzles generated and nanoseconds spent generating
+    private final Map<String, long[]> threadStats = new ConcurrentHashMap<>();
+
+    public PuzzleBatch(int difficulty, long seed, int parallelism) {
+        this.difficulty = difficulty;
+        this.seed = seed;
+        this.parallelism = parallelism;
+    }
+
+    /** Batch using all available cores */
+    public PuzzleBatch(int difficulty, long seed) {
+        this(difficulty, seed, Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Generate count puzzles and write them to out. Blocks until done. */
+    public void generate(int count, Sink out) throws IOException {
+        threadStats.clear();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            pool.invoke(new ChunkRange(0, chunks, count, out));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Puzzles generated per thread name, from the last generate() call */
+    public Map<String, Long> getPuzzleCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        threadStats.forEach((name, stats) -> counts.put(name, stats[0]));
+        return counts;
+    }
+
+    /** Puzzles per second of generation time per thread name, from the last generate() call */
+    public Map<String, Double> getPuzzlesPerSecond() {
+        Map<String, Double> rates = new TreeMap<>();
+        threadStats.forEach((name, stats) -> rates.put(name, stats[1] == 0 ? 0 : stats[0] * 1e9 / stats[1]));
+        return rates;
+    }
+
+    /**
+     * Sink writing each puzzle as one text line to the channel: the digits of the
+     * puzzle in row-major order with 0 for a blank, a comma, then the digits of
+     * the solution.
+     */
+    public static Sink textSink(WritableByteChannel channel) {
+        return new Sink() {
+            @Override
+            public int recordSize() {
+                return LINE_SIZE;
+            }
+
+            @Override
+            public void encode(Puzzle puzzle, int difficulty, ByteBuffer out) {
+                for (int row = 0; row < SudokuConstants.GRID_SIZE; ++row) {
+                    for (int col = 0; col < SudokuConstants.GRID_SIZE; ++col) {
+                        out.put((byte) ('0' + puzzle.numbers[row][col]));
+                    }
+                }
+                out.put((byte) ',');
+                for (int row = 0; row < SudokuConstants.GRID_SIZE; ++row) {
+                    for (int col = 0; col < SudokuConstants.GRID_SIZE; ++col) {
+                        out.put((byte) ('0' + puzzle.solution[row][col]));
+                    }
+                }
+                out.put((byte) '\n');
+            }
+
+            @Override
+            public synchronized void write(int difficulty, ByteBuffer chunk) throws IOException {
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+            }
+        };
+    }
+
+    // Splits the chunks [from, to) in halves until a single chunk is left
+    private class ChunkRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to, count;
+        private final Sink out;
+
+        ChunkRange(int from, int to, int count, Sink out) {
+            this.from = from;
+            this.to = to;
+            this.count = count;
+            this.out = out;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ChunkRange(from, mid, count, out), new ChunkRange(mid, to, count, out));
+                return;
+            }
+
+            int first = from * CHUNK_SIZE;
+            int size = Math.min(CHUNK_SIZE, count - first);
+            // Distinct, well-spread seed per chunk
+            Puzzle puzzle = new Puzzle(new Random(seed + from * 0x9E3779B97F4A7C15L));
+            ByteBuffer chunk = ByteBuffer.allocate(size * out.recordSize());
+
+            long start = System.nanoTime();
+            for (int i = 0; i < size; ++i) {
+                puzzle.newPuzzle(difficulty);
+                out.encode(puzzle, difficulty, chunk);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            long[] stats = threadStats.computeIfAbsent(Thread.currentThread().getName(), k -> new long[2]);
+            stats[0] += size; // only this thread updates its own entry
+            stats[1] += elapsed;
+
+            chunk.flip();
+            try {
+                out.write(difficulty, chunk);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package Sudoku;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * Headless command-line entry point for bulk puzzle generation.
+ *
+ * Usage: java Sudoku.PuzzleGenerator count difficulty[,difficulty...] output [threads] [seed]
+ *
+ * A difficulty is easy, medium, hard or a number of blanks; count puzzles are
+ * generated for each. An output ending in .bank is written as a PuzzleBank,
+ * anything else as one "puzzle,solution" text line per puzzle. Each
+ * difficulty's batch runs from the seed mixed with the difficulty, and the
+ * seed printed is that one. The same seed argument gives the same set of
+ * puzzles, but not in the same order: chunks are written as they finish.
+ */
+public class PuzzleGenerator {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: java Sudoku.PuzzleGenerator count difficulty[,difficulty...] output [threads] [seed]");
+            System.exit(1);
+        }
+        int count = Integer.parseInt(args[0]);
+        String[] difficulties = args[1].split(",");
+        Path output = Paths.get(args[2]);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+
+        if (output.toString().endsWith(".bank")) {
+            try (PuzzleBank.Writer bank = new PuzzleBank.Writer(output)) {
+                for (String difficulty : difficulties) {
+                    run(count, parseDifficulty(difficulty), seed, threads, bank);
+                }
+            }
+        } else {
+            try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                PuzzleBatch.Sink text = PuzzleBatch.textSink(channel);
+                for (String difficulty : difficulties) {
+                    run(count, parseDifficulty(difficulty), seed, threads, text);
+                }
+            }
+        }
+    }
+
+    private static void run(int count, int difficulty, long seed, int threads, PuzzleBatch.Sink sink)
+            throws IOException {
+        // Each difficulty gets its own seed; with the same one every level would
+        // start from the same grids and remove cells in the same order
+        seed ^= difficulty * 0xBF58476D1CE4E5B9L;
+        PuzzleBatch batch = new PuzzleBatch(difficulty, seed, threads);
+        long start = System.nanoTime();
+        batch.generate(count, sink);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Generated %d puzzles with %d blanks in %.2f s (%.0f puzzles/s, seed %d)%n",
+                count, difficulty, seconds, count / seconds, seed);
+        Map<String, Long> counts = batch.getPuzzleCounts();
+        for (Map.Entry<String, Double> e : batch.getPuzzlesPerSecond().entrySet()) {
+            System.out.printf("  %-30s %10d puzzles %10.0f puzzles/s%n",
+                    e.getKey(), counts.get(e.getKey()), e.getValue());
+        }
+    }
+
+    static int parseDifficulty(String text) {
+        switch (text.toLowerCase()) {
+            case "easy": return SudokuConstants.EASY;
+            case "medium": return SudokuConstants.MEDIUM;
+            case "hard": return SudokuConstants.HARD;
+            default: return Integer.parseInt(text);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package Sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The PuzzlePool class keeps a few ready-made puzzles for each board size and
+ * difficulty, so that starting a game never waits for the generator. A
+ * background thread tops the pool up after every take. If a pool is empty the
+ * puzzle is generated on the spot and counted as a miss.
+ */
+public class PuzzlePool {
+    /** Number of ready puzzles kept per difficulty */
+    public static final int CAPACITY = 4;
+    /**
+     * Number kept per difficulty of the larger boards, which take 0.2 s
+     * (16x16) to 0.7 s (25x25) each to generate
+     */
+    public static final int LARGE_CAPACITY = 1;
+
+    private static final int[] SIZES = {SudokuConstants.GRID_SIZE, 16, 25};
+    private static final int[] DIFFICULTIES = {
+            SudokuConstants.EASY, SudokuConstants.MEDIUM, SudokuConstants.HARD
+    };
+
+    private static PuzzlePool instance;
+
+    private final List<BlockingQueue<Puzzle>> ready; // per size, then per difficulty
+    private final AtomicBoolean[] refillPending;
+    private final ExecutorService refiller;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refills = new AtomicLong();
+    private final AtomicLong refillNanos = new AtomicLong();
+
+    private PuzzlePool() {
+        int pools = SIZES.length * DIFFICULTIES.length;
+        ready = new ArrayList<>(pools);
+        refillPending = new AtomicBoolean[pools];
+        for (int i = 0; i < pools; ++i) {
+            int size = sizeOf(i);
+            ready.add(new ArrayBlockingQueue<>(size == SudokuConstants.GRID_SIZE ? CAPACITY : LARGE_CAPACITY));
+            refillPending[i] = new AtomicBoolean();
+        }
+        refiller = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "puzzle-pool");
+            t.setDaemon(true); // never keep the JVM alive
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    public static synchronized PuzzlePool getInstance() {
+        if (instance == null) {
+            instance = new PuzzlePool();
+        }
+        return instance;
+    }
+
+    /**
+     * Start filling every pool in the background, the standard board's first,
+     * so its games are ready soonest
+     */
+    public void warmUp() {
+        for (int i = 0; i < ready.size(); ++i) {
+            scheduleRefill(i);
+        }
+    }
+
+    /** Returns a new standard puzzle of the given difficulty, see take(int, int) */
+    public Puzzle take(int difficulty) {
+        return take(SudokuConstants.GRID_SIZE, difficulty);
+    }
+
+    /**
+     * Returns a new size x size puzzle of the given difficulty. The caller
+     * owns the puzzle. Takes constant time unless the pool has run dry (or the
+     * size or difficulty is not one it keeps): then the puzzle is generated on
+     * the calling thread, which can take up to tens of milliseconds for a hard
+     * standard one and most of a second for a 25x25 one. Called from the event
+     * thread, that is a stall; warmUp() early keeps it rare.
+     */
+    public Puzzle take(int size, int difficulty) {
+        int index = indexOf(size, difficulty);
+        Puzzle puzzle = index < 0 ? null : ready.get(index).poll();
+        if (puzzle != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            puzzle = new Puzzle(size, new Random());
+            puzzle.newPuzzle(difficulty);
+        }
+        if (index >= 0) {
+            scheduleRefill(index);
+        }
+        return puzzle;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** Number of puzzles generated by the background thread */
+    public long getRefills() {
+        return refills.get();
+    }
+
+    /** Average time the background thread spent generating one puzzle */
+    public double getAverageRefillMillis() {
+        long count = refills.get();
+        return count == 0 ? 0 : refillNanos.get() / 1e6 / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PuzzlePool[hits=%d, misses=%d, refills=%d, avgRefill=%.2f ms]",
+                getHits(), getMisses(), getRefills(), getAverageRefillMillis());
+    }
+
+    private void scheduleRefill(int index) {
+        if (refillPending[index].compareAndSet(false, true)) {
+            refiller.execute(() -> refill(index));
+        }
+    }
+
+    private void refill(int index) {
+        try {
+            while (ready.get(index).remainingCapacity() > 0) {
+                long start = System.nanoTime();
+                Puzzle puzzle = new Puzzle(sizeOf(index), new Random());
+                puzzle.newPuzzle(DIFFICULTIES[index % DIFFICULTIES.length]);
+                refillNanos.addAndGet(System.nanoTime() - start);
+                refills.incrementAndGet();
+                ready.get(index).offer(puzzle);
+            }
+        } finally {
+            refillPending[index].set(false);
+        }
+        // A take may have slipped in after the last check
+        if (ready.get(index).remainingCapacity() > 0) {
+            scheduleRefill(index);
+        }
+    }
+
+    private static int indexOf(int size, int difficulty) {
+        for (int s = 0; s < SIZES.length; ++s) {
+            for (int d = 0; d < DIFFICULTIES.length; ++d) {
+                if (SIZES[s] == size && DIFFICULTIES[d] == difficulty) {
+                    return s * DIFFICULTIES.length + d;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int sizeOf(int index) {
+        return SIZES[index / DIFFICULTIES.length];
+    }
+}
@@ -0,0 +1,41 @@
+package Sudoku;
+
+/**
+ * The order and grouping in which Puzzle blanks cells. Symmetric patterns
+ * blank a cell together with its mirror images (its orbit), so the clues of
+ * the finished puzzle form the same symmetric picture published puzzles have.
+ */
+public enum RemovalPattern {
+    /** Cells one at a time in random order */
+    RANDOM,
+    /** Cells in pairs that swap under a 180 degree turn of the board */
+    ROTATIONAL,
+    /** Cells in pairs that swap under a left-right flip of the board */
+    MIRROR,
+    /** Only the cells of a template set with Puzzle.setRemovalMask() */
+    MASK;
+
+    /**
+     * Store the orbit of the given cell on a size x size board in orbit and
+     * return its length. The cell itself always comes first.
+     */
+    public int orbit(int cell, int size, int[] orbit) {
+        orbit[0] = cell;
+        int other;
+        switch (this) {
+            case ROTATIONAL:
+                other = size * size - 1 - cell;
+                break;
+            case MIRROR:
+                other = cell - cell % size + size - 1 - cell % size;
+                break;
+            default:
+                return 1;
+        }
+        if (other == cell) {
+            return 1;   // the centre cell, or the middle column when mirrored
+        }
+        orbit[1] = other;
+        return 2;
+    }
+}
@@ -0,0 +1,119 @@
+package Sudoku;
+
+import java.awt.*;
+import javax.swing.*;
+
+/**
+ * A window that plays back a recorded game: play and pause, a speed from
+ * half to 64 times as fast as it was played, and a slider to jump to any
+ * move. The board shows the replay's own game and cannot be typed into.
+ */
+public class ReplayFrame extends JFrame {
+    private static final long serialVersionUID = 1L; // to prevent serial warning
+
+    private static final double[] SPEEDS = {0.5, 1, 2, 4, 8, 16, 64};
+    private static final int FRAME_DELAY = 40; // milliseconds between updates while playing
+
+    private final SessionReplay replay;
+    private final JSlider slider;
+    private final JLabel positionLabel;
+    private final JButton playButton;
+    private final Timer timer = new Timer(FRAME_DELAY, e -> advance());
+    private double clock; // milliseconds into the recording
+    private long lastFrame; // System.nanoTime() of the last update
+    private double speed = 1;
+    private boolean moving; // the slider is being moved by advance(), not the player
+
+    public ReplayFrame(SessionReplay replay) {
+        this.replay = replay;
+        replay.seek(0);
+
+        GameBoardPanel board = new GameBoardPanel(null, replay.getGame());
+        board.setReadOnly(true);
+
+        playButton = new JButton("Play");
+        playButton.addActionListener(e -> togglePlay());
+
+        JComboBox<String> speedBox = new JComboBox<>();
+        for (double s : SPEEDS) {
+            speedBox.addItem((s == (int) s ? String.valueOf((int) s) : String.valueOf(s)) + "x");
+        }
+        speedBox.setSelectedIndex(1);
+        speedBox.addActionListener(e -> speed = SPEEDS[speedBox.getSelectedIndex()]);
+
+        slider = new JSlider(0, replay.getEventCount(), 0);
+        slider.addChangeListener(e -> {
+            if (!moving) {
+                replay.seek(slider.getValue());
+                clock = replay.getPositionTime();
+                updateLabel();
+            }
+        });
+
+        positionLabel = new JLabel();
+        positionLabel.setForeground(Color.WHITE);
+        positionLabel.setFont(new Font("Montserrat", Font.BOLD, 14));
+        updateLabel();
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.CENTER, 8, 6));
+        controls.setBackground(new Color(52, 73, 94)); // Same dark bar as the game window
+        controls.add(playButton);
+        controls.add(speedBox);
+        controls.add(slider);
+        controls.add(positionLabel);
+
+        Container cp = getContentPane();
+        cp.setLayout(new BorderLayout());
+        cp.add(board, BorderLayout.CENTER);
+        cp.add(controls, BorderLayout.SOUTH);
+
+        pack();
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setTitle("Sudoku Replay");
+        setLocationByPlatform(true);
+        setVisible(true);
+    }
+
+    private void togglePlay() {
+        if (timer.isRunning()) {
+            timer.stop();
+            playButton.setText("Play");
+            return;
+        }
+        if (replay.getPosition() == replay.getEventCount()) {
+            replay.seek(0); // start over from the beginning
+            clock = 0;
+        }
+        lastFrame = System.nanoTime();
+        timer.start();
+        playButton.setText("Pause");
+    }
+
+    // Move the clock on by the time passed, times the speed, and apply the events it passed
+    private void advance() {
+        long now = System.nanoTime();
+        clock += (now - lastFrame) / 1e6 * speed;
+        lastFrame = now;
+        replay.seekTime((long) clock);
+        moving = true;
+        slider.setValue(replay.getPosition());
+        moving = false;
+        updateLabel();
+        if (replay.getPosition() == replay.getEventCount()) {
+            timer.stop();
+            playButton.setText("Play");
+        }
+    }
+
+    private void updateLabel() {
+        long seconds = (long) clock / 1000;
+        positionLabel.setText(String.format("Move %d / %d   %02d:%02d", replay.getPosition(),
+                replay.getEventCount(), seconds / 60, seconds % 60));
+    }
+
+    @Override
+    public void dispose() {
+        timer.stop();
+        super.dispose();
+    }
+}
@@ -0,0 +1,245 @@
+package Sudoku;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The SessionRecorder class records how a game is played, for analysis and
+ * for SessionReplay. When a game starts it keeps a snapshot of it, as written
+ * by SudokuGame.writeTo(); after that it records every command the game
+ * accepts: entries, clears, hints, undo and redo, restarts, pauses and mode
+ * changes, each with the milliseconds since the one before, from a monotonic
+ * clock.
+ *
+ * Events are appended to one byte array as varints (7 bits a byte, low bits
+ * first), so recording a command costs a clock read and a few byte stores,
+ * and allocates nothing unless the array has to grow. Most events take 2 to
+ * 4 bytes; the file written is GZIP-compressed on top of that.
+ * <pre>
+ *   varint  delta ms &lt;&lt; 4 | kind
+ *   varint  cell              ENTER, CLEAR, HINT
+ *   varint  digit             ENTER, HINT
+ *   varint  technique         HINT
+ *   varint  0 or 1            PENCIL, AUTO
+ * </pre>
+ * File layout, before compression (big-endian):
+ * <pre>
+ *   int    MAGIC
+ *   short  VERSION
+ *   int    snapshot length, then the snapshot
+ *   byte   1 if the game was paused when the recording began, else 0
+ *   int    seconds on the game clock when the recording began
+ *   int    event count
+ *   int    events length, then the events
+ * </pre>
+ * Each game kept in the folder is named after the millisecond it started,
+ * with -2, -3... added if that name is taken.
+ */
+public class SessionRecorder {
+    public static final int MAGIC = 0x53444B52; // "SDKR"
+    public static final short VERSION = 1;
+
+    // Event kinds
+    public static final int ENTER = 0;
+    public static final int CLEAR = 1;
+    public static final int HINT = 2;
+    public static final int UNDO = 3;
+    public static final int REDO = 4;
+    public static final int RESTART = 5;
+    public static final int PAUSE = 6;
+    public static final int RESUME = 7;
+    public static final int PENCIL = 8;
+    public static final int AUTO = 9;
+
+    /**
+     * Folder the game keeps its recordings in, from the sudoku.recordings
+     * system property. Games are only kept on disk when it is set, since
+     * nothing removes old recordings.
+     */
+    public static final String DEFAULT_DIR = System.getProperty("sudoku.recordings", "");
+
+    private static ExecutorService writer; // created on the first save
+
+    private byte[] snapshot = new byte[0];
+    private boolean startPaused; // the game's state when the snapshot was taken
+    private int startElapsed;
+    private byte[] events = new byte[256];
+    private int length; // bytes of events used
+    private int count;  // events recorded
+    private long last;  // clock of the last event, in whole milliseconds since start
+    private long startedAt; // wall clock the game started, for the file name
+    private Path directory;
+
+    /** Keep each game recorded in the folder when the next one begins, or on finish() */
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    /** Start recording the game as it is now; the previous recording is kept first */
+    public void begin(SudokuGame game) {
+        if (count > 0 && directory != null) {
+            save();
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try {
+            game.writeTo(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // not thrown by a ByteArrayOutputStream
+        }
+        snapshot = bytes.toByteArray();
+        startPaused = game.isPaused();
+        startElapsed = game.getElapsed();
+        length = 0;
+        count = 0;
+        last = System.nanoTime();
+        startedAt = System.currentTimeMillis();
+    }
+
+    /** Keep the game recorded so far, and wait until it is written */
+    public void finish() {
+        if (count > 0 && directory != null) {
+            save();
+            count = 0;
+            length = 0;
+        }
+        if (writer != null) {
+            try {
+                writer.submit(() -> { }).get(); // runs after any queued write
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public int getEventCount() {
+        return count;
+    }
+
+    void record(int kind) {
+        ensureRoom();
+        long now = System.nanoTime();
+        long delta = (now - last) / 1_000_000;
+        last += delta * 1_000_000; // keep the remainder, so small deltas do not drift
+        writeVarint(delta << 4 | kind);
+        count++;
+    }
+
+    void record(int kind, int cell) {
+        record(kind);
+        writeVarint(cell);
+    }
+
+    void record(int kind, int cell, int value) {
+        record(kind, cell);
+        writeVarint(value);
+    }
+
+    void recordHint(int cell, int digit, Technique technique) {
+        record(HINT, cell, digit);
+        writeVarint(technique.ordinal());
+    }
+
+    void recordFlag(int kind, boolean on) {
+        record(kind);
+        writeVarint(on ? 1 : 0);
+    }
+
+    // Room for the largest event: four varints of at most 10 bytes
+    private void ensureRoom() {
+        if (length + 40 > events.length) {
+            events = Arrays.copyOf(events, events.length * 2);
+        }
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            events[length++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        events[length++] = (byte) value;
+    }
+
+    /** A replay of the game recorded so far */
+    public SessionReplay replay() throws IOException {
+        return new SessionReplay(snapshot, startPaused, startElapsed, Arrays.copyOf(events, length), count);
+    }
+
+    /** Write the recording, GZIP-compressed */
+    public void writeTo(OutputStream out) throws IOException {
+        write(out, snapshot, startPaused, startElapsed, events, length, count);
+    }
+
+    private static void write(OutputStream out, byte[] snapshot, boolean paused, int elapsed,
+            byte[] events, int length, int count) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out, 8192);
+        DataOutputStream data = new DataOutputStream(gzip);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(snapshot.length);
+        data.write(snapshot);
+        data.writeBoolean(paused);
+        data.writeInt(elapsed);
+        data.writeInt(count);
+        data.writeInt(length);
+        data.write(events, 0, length);
+        data.flush();
+        gzip.finish();
+    }
+
+    // Write a copy of the recording in the background, named after the time the game started
+    private void save() {
+        byte[] savedSnapshot = snapshot;
+        boolean savedPaused = startPaused;
+        int savedElapsed = startElapsed;
+        byte[] savedEvents = Arrays.copyOf(events, length);
+        int savedCount = count;
+        Path folder = directory;
+        String name = String.format("sudoku-%tY%<tm%<td-%<tH%<tM%<tS-%<tL", startedAt);
+        writer().execute(() -> {
+            try {
+                Files.createDirectories(folder);
+                try (OutputStream out = create(folder, name)) {
+                    write(out, savedSnapshot, savedPaused, savedElapsed, savedEvents, savedEvents.length, savedCount);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // A new file for the recording; never one kept already
+    private static OutputStream create(Path folder, String name) throws IOException {
+        for (int n = 1; ; ++n) {
+            Path file = folder.resolve(n == 1 ? name + ".sdkr" : name + "-" + n + ".sdkr");
+            try {
+                return Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (FileAlreadyExistsException e) {
+                // taken by a game started in the same millisecond, try the next
+            }
+        }
+    }
+
+    private static synchronized ExecutorService writer() {
+        if (writer == null) {
+            writer = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "recording-writer");
+                t.setDaemon(true); // finish() is called before the game exits
+                return t;
+            });
+        }
+        return writer;
+    }
+}
@@ -0,0 +1,257 @@
+package Sudoku;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The SessionReplay class plays back a game recorded by SessionRecorder on a
+ * SudokuGame of its own, which a GameBoardPanel can show. The position is the
+ * number of events applied; it can be moved to any event or any time, either
+ * way. Moving back restores the snapshot the recording starts from and
+ * applies the events again, which the headless game does in microseconds.
+ */
+public class SessionReplay {
+    private static final Technique[] TECHNIQUES = Technique.values();
+
+    private final byte[] snapshot;
+    private final boolean startPaused; // the game's state when the recording began
+    private final int startElapsed;
+    // Per event
+    private final long[] times;  // milliseconds since the recording started
+    private final byte[] kinds;
+    private final int[] cells;   // -1 if the event has no cell
+    private final int[] values;  // digit, or 0 / 1 for PENCIL and AUTO
+    private final byte[] techniques; // of HINT events
+    private final SudokuGame game = new SudokuGame();
+    private int position;
+
+    SessionReplay(byte[] snapshot, boolean paused, int elapsed, byte[] events, int count) throws IOException {
+        this.snapshot = snapshot;
+        this.startPaused = paused;
+        restore(); // checks the snapshot, and gives the board size to check the events by
+        this.startElapsed = elapsed;
+        int size = game.getSize();
+        times = new long[count];
+        kinds = new byte[count];
+        cells = new int[count];
+        values = new int[count];
+        techniques = new byte[count];
+        int[] at = {0};
+        long time = 0;
+        for (int e = 0; e < count; ++e) {
+            long head = readVarint(events, at);
+            int kind = (int) (head & 0xF);
+            time += head >>> 4;
+            times[e] = time;
+            kinds[e] = (byte) kind;
+            cells[e] = -1;
+            switch (kind) {
+                case SessionRecorder.ENTER:
+                    cells[e] = (int) readVarint(events, at);
+                    values[e] = (int) readVarint(events, at);
+                    break;
+                case SessionRecorder.CLEAR:
+                    cells[e] = (int) readVarint(events, at);
+                    break;
+                case SessionRecorder.HINT:
+                    cells[e] = (int) readVarint(events, at);
+                    values[e] = (int) readVarint(events, at);
+                    int technique = (int) readVarint(events, at);
+                    if (technique >= TECHNIQUES.length) {
+                        throw new IOException("Unknown technique in event " + e);
+                    }
+                    techniques[e] = (byte) technique;
+                    break;
+                case SessionRecorder.PENCIL:
+                case SessionRecorder.AUTO:
+                    values[e] = (int) readVarint(events, at);
+                    break;
+                case SessionRecorder.UNDO:
+                case SessionRecorder.REDO:
+                case SessionRecorder.RESTART:
+                case SessionRecorder.PAUSE:
+                case SessionRecorder.RESUME:
+                    break;
+                default:
+                    throw new IOException("Unknown event kind " + kind);
+            }
+            boolean hasCell = kind <= SessionRecorder.HINT;
+            boolean hasDigit = kind == SessionRecorder.ENTER || kind == SessionRecorder.HINT;
+            if (hasCell && (cells[e] < 0 || cells[e] >= size * size)
+                    || hasDigit && (values[e] < 1 || values[e] > size)) {
+                throw new IOException("Event " + e + " is off the board");
+            }
+        }
+    }
+
+    /** Read a recording written by SessionRecorder.writeTo() */
+    public static SessionReplay read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new GZIPInputStream(in, 8192));
+        if (data.readInt() != SessionRecorder.MAGIC) {
+            throw new IOException("Not a recording");
+        }
+        short version = data.readShort();
+        if (version != SessionRecorder.VERSION) {
+            throw new IOException("Not a recording of this version");
+        }
+        byte[] snapshot = new byte[data.readInt()];
+        data.readFully(snapshot);
+        boolean paused = data.readBoolean();
+        int elapsed = data.readInt();
+        int count = data.readInt();
+        byte[] events = new byte[data.readInt()];
+        data.readFully(events);
+        return new SessionReplay(snapshot, paused, elapsed, events, count);
+    }
+
+    private static long readVarint(byte[] bytes, int[] at) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (at[0] >= bytes.length) {
+                throw new IOException("Recording ends in the middle of an event");
+            }
+            byte b = bytes[at[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt recording");
+    }
+
+    /** The game being replayed; changing it directly puts it out of step */
+    public SudokuGame getGame() {
+        return game;
+    }
+
+    public int getEventCount() {
+        return times.length;
+    }
+
+    /** Whether the game was paused when the recording began */
+    public boolean isStartPaused() {
+        return startPaused;
+    }
+
+    /** Seconds on the game clock when the recording began */
+    public int getStartElapsed() {
+        return startElapsed;
+    }
+
+    /** Events applied so far */
+    public int getPosition() {
+        return position;
+    }
+
+    /** Milliseconds from the start of the recording to the event */
+    public long getTime(int event) {
+        return times[event];
+    }
+
+    /** Milliseconds from the start of the recording to the current position */
+    public long getPositionTime() {
+        return position == 0 ? 0 : times[position - 1];
+    }
+
+    public long getDuration() {
+        return times.length == 0 ? 0 : times[times.length - 1];
+    }
+
+    /** One of SessionRecorder's event kinds */
+    public int getKind(int event) {
+        return kinds[event];
+    }
+
+    /** The cell (row * size + col) of an ENTER, CLEAR or HINT event, -1 for the others */
+    public int getCell(int event) {
+        return cells[event];
+    }
+
+    /** Apply events up to, but not including, the event at position */
+    public void seek(int position) {
+        position = Math.max(0, Math.min(position, times.length));
+        if (position < this.position) {
+            try {
+                restore();
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // read once already in the constructor
+            }
+        }
+        while (this.position < position) {
+            apply(this.position++);
+        }
+    }
+
+    /** Apply every event recorded up to millis after the start */
+    public void seekTime(long millis) {
+        // The first event later than millis
+        int low = 0;
+        int high = times.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] <= millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        seek(low);
+    }
+
+    /** Apply the next event; false if there is none */
+    public boolean step() {
+        if (position == times.length) {
+            return false;
+        }
+        apply(position++);
+        return true;
+    }
+
+    private void restore() throws IOException {
+        game.readFrom(new DataInputStream(new ByteArrayInputStream(snapshot)));
+        game.setPaused(startPaused);
+        position = 0;
+    }
+
+    private void apply(int e) {
+        int size = game.getSize();
+        int cell = cells[e];
+        switch (kinds[e]) {
+            case SessionRecorder.ENTER:
+                game.enter(cell / size, cell % size, values[e]);
+                break;
+            case SessionRecorder.CLEAR:
+                game.clear(cell / size, cell % size);
+                break;
+            case SessionRecorder.HINT:
+                Technique technique = TECHNIQUES[techniques[e]];
+                game.useHint(new HintEngine.Hint(cell, values[e], technique,
+                        technique.getDisplayName(), new int[] {cell}));
+                break;
+            case SessionRecorder.UNDO:
+                game.undo();
+                break;
+            case SessionRecorder.REDO:
+                game.redo();
+                break;
+            case SessionRecorder.RESTART:
+                game.restart();
+                break;
+            case SessionRecorder.PAUSE:
+                game.setPaused(true);
+                break;
+            case SessionRecorder.RESUME:
+                game.setPaused(false);
+                break;
+            case SessionRecorder.PENCIL:
+                game.setPencilMode(values[e] != 0);
+                break;
+            case SessionRecorder.AUTO:
+                game.setAutoCandidates(values[e] != 0);
+                break;
+        }
+    }
+}
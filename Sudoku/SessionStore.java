@@ -0,0 +1,177 @@
+package Sudoku;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * The SessionStore class keeps the game in progress in a small binary file,
+ * so it can be resumed after the window is closed. Saves are handed to one
+ * background thread and coalesced: while a write is running only the newest
+ * session waits, older ones are dropped. Each write goes to a temporary file
+ * that is then moved over the old one, so the file on disk is always either
+ * the previous session or the new one, never half of each.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *   int    MAGIC
+ *   short  VERSION
+ *   int    body length
+ *   int    CRC-32 of the body
+ *   bytes  body, as written by Sudoku
+ * </pre>
+ */
+public class SessionStore {
+    public static final int MAGIC = 0x53444B53; // "SDKS"
+    public static final short VERSION = 2;
+    public static final int HEADER_SIZE = 14;
+
+    /** Session file used by the game, from the sudoku.session system property */
+    public static final String DEFAULT_PATH = System.getProperty("sudoku.session", "sudoku.session");
+
+    private static SessionStore defaultStore;
+
+    private final Path path;
+    private final ExecutorService writer;
+    private byte[] pending;   // newest body not yet written, null if none
+    private boolean draining; // a write task is queued or running
+
+    public SessionStore(Path path) {
+        this.path = path.toAbsolutePath();
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "session-writer");
+            t.setDaemon(true); // flush() is called before the game exits
+            return t;
+        });
+    }
+
+    /** Returns the store at DEFAULT_PATH */
+    public static synchronized SessionStore getDefault() {
+        if (defaultStore == null) {
+            defaultStore = new SessionStore(Paths.get(DEFAULT_PATH));
+        }
+        return defaultStore;
+    }
+
+    /** True if there is a saved session to resume */
+    public boolean exists() {
+        return Files.isRegularFile(path);
+    }
+
+    /**
+     * Write the session body in the background. Returns at once; if several
+     * sessions are saved while a write is running, only the last is written.
+     */
+    public synchronized void save(byte[] body) {
+        pending = body;
+        if (!draining) {
+            draining = true;
+            writer.execute(this::drain);
+        }
+    }
+
+    /** Wait until every session saved so far is on disk */
+    public void flush() {
+        try {
+            writer.submit(() -> { }).get(); // runs after any queued write
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Forget the saved session, once any write still queued is done */
+    public void delete() {
+        synchronized (this) {
+            pending = null;
+        }
+        writer.execute(() -> {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Read the saved session body, or return null if there is none. Throws
+     * IOException if the file is not a session of this version or is damaged.
+     */
+    public DataInputStream load() throws IOException {
+        flush(); // a save may still be on its way
+        byte[] data;
+        try {
+            data = Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.wrap(data);
+        if (data.length < HEADER_SIZE || header.getInt() != MAGIC || header.getShort() != VERSION) {
+            throw new IOException("Not a saved game of this version");
+        }
+        int length = header.getInt();
+        int checksum = header.getInt();
+        CRC32 crc = new CRC32();
+        crc.update(data, HEADER_SIZE, data.length - HEADER_SIZE);
+        if (length != data.length - HEADER_SIZE || (int) crc.getValue() != checksum) {
+            throw new IOException("Saved game is damaged");
+        }
+        return new DataInputStream(new ByteArrayInputStream(data, HEADER_SIZE, length));
+    }
+
+    // Write sessions until none is pending; runs on the writer thread
+    private void drain() {
+        while (true) {
+            byte[] body;
+            synchronized (this) {
+                body = pending;
+                pending = null;
+                if (body == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            try {
+                write(body);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void write(byte[] body) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + body.length);
+        data.putInt(MAGIC);
+        data.putShort(VERSION);
+        data.putInt(body.length);
+        data.putInt((int) crc.getValue());
+        data.put(body);
+
+        Path temp = Files.createTempFile(path.getParent(), "session", ".tmp");
+        try {
+            Files.write(temp, data.array());
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
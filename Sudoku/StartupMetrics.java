@@ -0,0 +1,75 @@
+package Sudoku;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Times how long a window takes to come up: time to first frame, until the
+ * window has painted once, and time to interactive, until every asset it
+ * uses has arrived and the event thread has caught up. The first window is
+ * timed from the start of the JVM, later ones from when they are created.
+ *
+ * The times are printed when both are known if the sudoku.metrics system
+ * property is true (java -Dsudoku.metrics=true ...), and can be read back
+ * with the getters either way.
+ */
+public class StartupMetrics {
+    /** Print every window's times */
+    public static final boolean PRINT = Boolean.getBoolean("sudoku.metrics");
+
+    private static boolean launched; // the first window has been timed
+
+    private final String name;
+    private final long start; // System.nanoTime() the clock started
+    private long firstFrame = -1;  // nanoseconds from start, -1 until known
+    private long interactive = -1;
+
+    private StartupMetrics(String name, long start) {
+        this.name = name;
+        this.start = start;
+    }
+
+    /** Start timing a window; the first one ever is timed from the JVM start */
+    public static synchronized StartupMetrics forWindow(String name) {
+        long now = System.nanoTime();
+        if (launched) {
+            return new StartupMetrics(name, now);
+        }
+        launched = true;
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        return new StartupMetrics(name, now - uptime * 1_000_000);
+    }
+
+    /** The window has painted; only the first call counts */
+    public synchronized void firstFrame() {
+        if (firstFrame < 0) {
+            firstFrame = System.nanoTime() - start;
+            report();
+        }
+    }
+
+    /** The window has everything it needs; only the first call counts */
+    public synchronized void interactive() {
+        if (interactive < 0) {
+            interactive = System.nanoTime() - start;
+            report();
+        }
+    }
+
+    /** Milliseconds to the first frame, -1 if not painted yet */
+    public synchronized long getTimeToFirstFrame() {
+        return firstFrame < 0 ? -1 : firstFrame / 1_000_000;
+    }
+
+    /** Milliseconds until interactive, -1 if not yet */
+    public synchronized long getTimeToInteractive() {
+        return interactive < 0 ? -1 : interactive / 1_000_000;
+    }
+
+    private void report() {
+        if (PRINT && firstFrame >= 0 && interactive >= 0) {
+            // Interactive can come first if every asset was ready before the paint
+            System.out.println(name + ": first frame " + getTimeToFirstFrame() + " ms, interactive "
+                    + Math.max(getTimeToInteractive(), getTimeToFirstFrame()) + " ms");
+        }
+    }
+}
@@ -3,46 +3,91 @@ package Sudoku;
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
-import javax.sound.sampled.*;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.io.BufferedInputStream;
+import Audio.AudioService;
+import Audio.Channel;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
 
 public class Sudoku extends JFrame {
     private static final long serialVersionUID = 1L;
     private GameBoardPanel board;
-    private int currentDifficulty;
-    private Clip backgroundClip;
-    private Clip correctSoundClip;
-    private Clip incorrectSoundClip;
-    private Timer gameTimer;
-    private int elapsedTime = 0; // in seconds
+    private SudokuGame game; // the rules and state; this window only shows them
+    private SessionRecorder recorder; // every command given to the game, for replays
+    private boolean ranked; // the game is on the leaderboard already
+    private Timer gameTimer; // ticks the game's clock every second
     private JLabel timerLabel;
-    private boolean isPaused = false; // Track if the timer is paused
     private JButton pauseResumeButton; // Button to pause/resume the timer
     private JButton hintButton; // Button to provide hints
-    private int hintCounter = 0; // Track the number of hints used
-    private int maxHints; // Maximum number of hints allowed
+    private JLabel hintLabel; // Explanation of the last hint
     private String playerName;
-    private int score;
     private JLabel playerNameLabel;
     private JLabel scoreLabel;
+    private JCheckBoxMenuItem pencilItem;
+    private JCheckBoxMenuItem autoCandidatesItem;
+    private Timer autosaveTimer; // saves once the board has been still for AUTOSAVE_DELAY
+    private final StartupMetrics metrics = StartupMetrics.forWindow("Sudoku");
+
+    /** Board sizes offered in the Options menu */
+    public static final int[] BOARD_SIZES = {SudokuConstants.GRID_SIZE, 16, 25};
+    /** Milliseconds without a move before the session is saved */
+    public static final int AUTOSAVE_DELAY = 300;
+    /** Sounds, see AudioService for where they are looked for */
+    public static final String MUSIC = "Sudoku/backsound.wav";
+    public static final String CORRECT_SOUND = "Sudoku/benar sudoku.wav";
+    public static final String INCORRECT_SOUND = "Sudoku/salah sudoku.wav";
 
     public Sudoku(int difficulty, String playerName) {
-        this.currentDifficulty = difficulty;
-        setMaxHints(difficulty); // Set the maximum hints based on difficulty
+        this(playerName, new SudokuGame());
+        startNewGame(difficulty);
+    }
+
+    /**
+     * Continue the session saved in the default SessionStore. Throws
+     * IOException if there is none or it cannot be read.
+     */
+    public static Sudoku resume() throws IOException {
+        DataInput in = SessionStore.getDefault().load();
+        if (in == null) {
+            throw new IOException("No saved game");
+        }
+        String playerName = in.readUTF();
+        SudokuGame game = new SudokuGame();
+        game.readFrom(in);
+        boolean known = false;
+        for (int size : BOARD_SIZES) {
+            known |= size == game.getSize();
+        }
+        if (!known) {
+            throw new IOException("Unsupported board size " + game.getSize());
+        }
+        return new Sudoku(playerName, game);
+    }
+
+    // Show the game as it is
+    private Sudoku(String playerName, SudokuGame game) {
         this.playerName = playerName;
-        this.score = 0; // Initialize score
+        this.game = game;
+        recorder = new SessionRecorder();
+        if (!SessionRecorder.DEFAULT_DIR.isEmpty()) {
+            recorder.setDirectory(Paths.get(SessionRecorder.DEFAULT_DIR)); // each game is kept when it ends
+        }
+        game.setRecorder(recorder);
+        autosaveTimer = new Timer(AUTOSAVE_DELAY, e -> autosave());
+        autosaveTimer.setRepeats(false);
 
         Container cp = getContentPane();
         cp.setLayout(new BorderLayout());
 
-        // Play background music
-        playBackgroundMusic("Sudoku/backsound.wav");
+        // Play background music, carrying on if the welcome screen started it
+        AudioService.getInstance().playMusic(MUSIC);
 
-        // Load sound effects
-        correctSoundClip = loadSound("Sudoku/benar sudoku.wav");
-        incorrectSoundClip = loadSound("Sudoku/salah sudoku.wav");
+        // The sound effects decode in the background, the window does not wait for them
+        CompletableFuture.allOf(AssetPreloader.sound(CORRECT_SOUND), AssetPreloader.sound(INCORRECT_SOUND))
+                .thenRun(() -> SwingUtilities.invokeLater(metrics::interactive));
 
         // Create Menu Bar
         JMenuBar menuBar = new JMenuBar();
@@ -54,13 +99,31 @@ public class Sudoku extends JFrame {
 
         JMenuItem newGameItem = new JMenuItem("New Game");
         JMenuItem resetGameItem = new JMenuItem("Reset Game");
+        JMenuItem restartItem = new JMenuItem("Restart");
+        JMenuItem replayItem = new JMenuItem("Replay This Game");
         JMenuItem exitItem = new JMenuItem("Exit to Main Menu");
 
         gameMenu.add(newGameItem);
         gameMenu.add(resetGameItem);
+        gameMenu.add(restartItem);
+        gameMenu.add(replayItem);
         gameMenu.addSeparator();
         gameMenu.add(exitItem);
 
+        // Edit Menu: undo and redo any move
+        JMenu editMenu = new JMenu("Edit");
+        menuBar.add(editMenu);
+
+        JMenuItem undoItem = new JMenuItem("Undo");
+        undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+        JMenuItem redoItem = new JMenuItem("Redo");
+        redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+        editMenu.add(undoItem);
+        editMenu.add(redoItem);
+
+        undoItem.addActionListener(e -> board.undo());
+        redoItem.addActionListener(e -> board.redo());
+
         // Options Menu
         JMenu optionsMenu = new JMenu("Options");
         menuBar.add(optionsMenu);
@@ -68,6 +131,31 @@ public class Sudoku extends JFrame {
         JMenuItem volumeControl = new JMenuItem("Volume Control");
         optionsMenu.add(volumeControl);
 
+        // Board Size submenu: 9x9, 16x16 or 25x25
+        JMenu boardSizeMenu = new JMenu("Board Size");
+        ButtonGroup boardSizeGroup = new ButtonGroup();
+        for (int size : BOARD_SIZES) {
+            JRadioButtonMenuItem sizeItem = new JRadioButtonMenuItem(size + " x " + size,
+                    size == game.getSize());
+            sizeItem.addActionListener(e -> changeBoardSize(size));
+            boardSizeGroup.add(sizeItem);
+            boardSizeMenu.add(sizeItem);
+        }
+        optionsMenu.add(boardSizeMenu);
+
+        // Notes Menu: pencil marks
+        JMenu notesMenu = new JMenu("Notes");
+        menuBar.add(notesMenu);
+
+        pencilItem = new JCheckBoxMenuItem("Pencil Mode");
+        pencilItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_N, 0));
+        autoCandidatesItem = new JCheckBoxMenuItem("Auto Candidates");
+        notesMenu.add(pencilItem);
+        notesMenu.add(autoCandidatesItem);
+
+        pencilItem.addActionListener(e -> board.setPencilMode(pencilItem.isSelected()));
+        autoCandidatesItem.addActionListener(e -> board.setAutoCandidates(autoCandidatesItem.isSelected()));
+
         // Help Menu
         JMenu helpMenu = new JMenu("Help");
         menuBar.add(helpMenu);
@@ -78,6 +166,8 @@ public class Sudoku extends JFrame {
         // Add Action Listeners
         newGameItem.addActionListener(e -> showDifficultySelection());
         resetGameItem.addActionListener(e -> resetGame());
+        restartItem.addActionListener(e -> restartGame());
+        replayItem.addActionListener(e -> showReplay());
         exitItem.addActionListener(e -> {
             dispose(); // Close the current Sudoku window
             SwingUtilities.invokeLater(() -> new WelcomeScreen()); // Open the WelcomeScreen
@@ -95,12 +185,10 @@ public class Sudoku extends JFrame {
         pauseResumeButton = createStyledButton("Pause");
         pauseResumeButton.addActionListener(e -> togglePauseResume(pauseResumeButton));
 
-        hintButton = createStyledButton("Hint (" + (maxHints - hintCounter) + " left)");
+        hintButton = createStyledButton("Hint (" + game.getHintsLeft() + " left)");
         hintButton.addActionListener(e -> {
-            if (hintCounter < maxHints) {
+            if (game.canHint()) {
                 board.provideHint();
-                hintCounter++;
-                updateHintButtonText();
             } else {
                 JOptionPane.showMessageDialog(this, "No more hints available!");
             }
@@ -110,6 +198,11 @@ public class Sudoku extends JFrame {
         timerPanel.add(pauseResumeButton);
         timerPanel.add(hintButton);
 
+        hintLabel = new JLabel();
+        hintLabel.setForeground(Color.WHITE);
+        hintLabel.setFont(new Font("Montserrat", Font.PLAIN, 13));
+        timerPanel.add(hintLabel);
+
         // Player info panel
         JPanel infoPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         infoPanel.setBackground(new Color(52, 73, 94)); // Dark background for contrast
@@ -117,7 +210,7 @@ public class Sudoku extends JFrame {
         playerNameLabel.setForeground(Color.WHITE);
         playerNameLabel.setFont(new Font("Montserrat", Font.BOLD, 16));
 
-        scoreLabel = new JLabel("Score: " + score);
+        scoreLabel = new JLabel("Score: " + game.getScore());
         scoreLabel.setForeground(Color.WHITE);
         scoreLabel.setFont(new Font("Montserrat", Font.BOLD, 16));
 
@@ -127,59 +220,64 @@ public class Sudoku extends JFrame {
 
         cp.add(infoPanel, BorderLayout.NORTH);
         cp.add(timerPanel, BorderLayout.SOUTH);
-        board = new GameBoardPanel(this); // Pass Sudoku instance to GameBoardPanel
+        board = new GameBoardPanel(this, game); // Pass Sudoku instance to GameBoardPanel
         cp.add(board, BorderLayout.CENTER);
 
-        startNewGame(difficulty);
+        game.addListener(new SudokuGame.Listener() {
+            @Override
+            public void gameStarted() {
+                ranked = false;
+                updateHintButtonText();
+            }
 
-        pack();
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setTitle("Sudoku");
-        setVisible(true);
-    }
+            @Override
+            public void moveMade() {
+                autosaveTimer.restart(); // saves once the moves pause
+            }
 
-    private Clip loadSound(String resourcePath) {
-        try {
-            InputStream audioSrc = getClass().getClassLoader().getResourceAsStream(resourcePath);
-            if (audioSrc == null) {
-                throw new FileNotFoundException("Resource not found: " + resourcePath);
+            @Override
+            public void scoreChanged(int score) {
+                scoreLabel.setText("Score: " + score);
             }
-            InputStream bufferedIn = new BufferedInputStream(audioSrc);
-            AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(bufferedIn);
-            Clip clip = AudioSystem.getClip();
-            clip.open(audioInputStream);
-            return clip;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
-    }
 
-    private void playSound(Clip clip) {
-        if (clip != null) {
-            clip.setFramePosition(0); // Rewind to the beginning
-            clip.start();
-        }
-    }
+            @Override
+            public void hintUsed(HintEngine.Hint hint) {
+                updateHintButtonText();
+            }
 
-    private void setMaxHints(int difficulty) {
-        switch (difficulty) {
-            case SudokuConstants.EASY:
-                maxHints = 3;
-                break;
-            case SudokuConstants.MEDIUM:
-                maxHints = 5;
-                break;
-            case SudokuConstants.HARD:
-                maxHints = 7;
-                break;
-            default:
-                maxHints = 3;
-        }
+            @Override
+            public void timeChanged(int seconds) {
+                timerLabel.setText(String.format("Time: %02d:%02d", seconds / 60, seconds % 60));
+            }
+
+            @Override
+            public void solved() {
+                addToLeaderboard();
+                // After the move that solved it has finished
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(Sudoku.this,
+                        "Congratulations! You solved the puzzle!"));
+            }
+        });
+        timerLabel.setText(String.format("Time: %02d:%02d", game.getElapsed() / 60, game.getElapsed() % 60));
+        pencilItem.setSelected(game.isPencilMode());
+        autoCandidatesItem.setSelected(game.isAutoCandidates());
+        startTimer();
+
+        pack();
+        // Keep the session when the window is closed, it can be resumed later
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                saveNow();
+            }
+        });
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setTitle("Sudoku");
+        setVisible(true);
     }
 
     private void updateHintButtonText() {
-        hintButton.setText("Hint (" + (maxHints - hintCounter) + " left)");
+        hintButton.setText("Hint (" + game.getHintsLeft() + " left)");
     }
 
     private JButton createStyledButton(String text) {
@@ -211,12 +309,7 @@ public class Sudoku extends JFrame {
         gameTimer = new Timer(1000, new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (!isPaused) {
-                    elapsedTime++;
-                    int minutes = elapsedTime / 60;
-                    int seconds = elapsedTime % 60;
-                    timerLabel.setText(String.format("Time: %02d:%02d", minutes, seconds));
-                }
+                game.tick(); // Tidak dihitung selama dijeda
             }
         });
         gameTimer.start();
@@ -229,15 +322,17 @@ public class Sudoku extends JFrame {
     }
 
     private void pauseTimer() {
-        isPaused = true;
+        game.setPaused(true);
+        AudioService.getInstance().pauseMusic();
     }
 
     private void resumeTimer() {
-        isPaused = false;
+        game.setPaused(false);
+        AudioService.getInstance().resumeMusic();
     }
 
     private void togglePauseResume(JButton pauseResumeButton) {
-        if (isPaused) {
+        if (game.isPaused()) {
             resumeTimer();
             pauseResumeButton.setText("Pause");
         } else {
@@ -246,31 +341,10 @@ public class Sudoku extends JFrame {
         }
     }
 
-    private void playBackgroundMusic(String resourcePath) {
-        try {
-            InputStream audioSrc = getClass().getClassLoader().getResourceAsStream(resourcePath);
-            if (audioSrc == null) {
-                throw new FileNotFoundException("Resource not found: " + resourcePath);
-            }
-            InputStream bufferedIn = new BufferedInputStream(audioSrc);
-            AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(bufferedIn);
-            backgroundClip = AudioSystem.getClip();
-            backgroundClip.open(audioInputStream);
-
-            // Use VolumeManager to manage volume
-            VolumeManager.getInstance().setCurrentClip(backgroundClip);
-
-            backgroundClip.loop(Clip.LOOP_CONTINUOUSLY);
-            backgroundClip.start();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-
     private void showVolumeControl() {
         JDialog volumeDialog = new JDialog(this, "Volume Control", true);
         volumeDialog.setLayout(new BorderLayout(10, 10));
-        volumeDialog.setSize(300, 150);
+        volumeDialog.setSize(300, 200);
 
         JPanel volumePanel = new JPanel(new BorderLayout(10, 10));
         volumePanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -279,16 +353,22 @@ public class Sudoku extends JFrame {
         volumeLabel.setFont(new Font("Montserrat", Font.BOLD, 14));
         volumePanel.add(volumeLabel, BorderLayout.NORTH);
 
-        JSlider volumeSlider = new JSlider(0, 100, (int)(VolumeManager.getInstance().getVolume() * 100));
-        volumeSlider.addChangeListener(e -> {
-            float newVolume = volumeSlider.getValue() / 100f;
-            VolumeManager.getInstance().setVolume(newVolume);
-        });
+        // One slider per channel the game plays on
+        JPanel slidersPanel = new JPanel(new GridLayout(2, 2, 5, 5));
+        for (Channel channel : new Channel[] {Channel.MUSIC, Channel.EFFECTS}) {
+            JSlider volumeSlider = new JSlider(0, 100, (int)(VolumeManager.getInstance().getVolume(channel) * 100));
+            volumeSlider.addChangeListener(e -> {
+                float newVolume = volumeSlider.getValue() / 100f;
+                VolumeManager.getInstance().setVolume(channel, newVolume);
+            });
+            slidersPanel.add(new JLabel(channel == Channel.MUSIC ? "Music" : "Effects"));
+            slidersPanel.add(volumeSlider);
+        }
 
         JButton closeButton = createStyledButton("Close");
         closeButton.addActionListener(e -> volumeDialog.dispose());
 
-        volumePanel.add(volumeSlider, BorderLayout.CENTER);
+        volumePanel.add(slidersPanel, BorderLayout.CENTER);
         volumePanel.add(closeButton, BorderLayout.SOUTH);
 
         volumeDialog.add(volumePanel);
@@ -297,13 +377,26 @@ public class Sudoku extends JFrame {
     }
 
     private void resetGame() {
+        startNewGame(game.getDifficulty()); // A new puzzle of the same difficulty
+    }
+
+    private void restartGame() {
         stopTimer();
-        elapsedTime = 0;
-        timerLabel.setText("Time: 00:00");
-        board.newGame(currentDifficulty);
+        board.restart(); // Same puzzle, every move taken back, clock, score and hints at zero
+        updateHintButtonText();
         startTimer();
     }
 
+    private void changeBoardSize(int size) {
+        if (size == board.getBoardSize()) {
+            return;
+        }
+        board.setBoardSize(size);
+        startNewGame(game.getDifficulty());
+        pack();
+        setLocationRelativeTo(null);
+    }
+
     private void showAboutDialog() {
         JDialog aboutDialog = new JDialog(this, "About", true);
         aboutDialog.setLayout(new BorderLayout());
@@ -373,8 +466,6 @@ public class Sudoku extends JFrame {
 
     private void startNewGame(int difficulty) {
         stopTimer();
-        elapsedTime = 0;
-        timerLabel.setText("Time: 00:00");
         int cellsToGuess;
         switch (difficulty) {
             case SudokuConstants.EASY: cellsToGuess = SudokuConstants.EASY; break;
@@ -382,34 +473,94 @@ public class Sudoku extends JFrame {
             case SudokuConstants.HARD: cellsToGuess = SudokuConstants.HARD; break;
             default: cellsToGuess = SudokuConstants.EASY;
         }
-        board.newGame(cellsToGuess);
+        board.newGame(cellsToGuess); // The clock starts again from zero
+        hintLabel.setText("");
         startTimer();
     }
 
+    // Hand the session to the store, which writes it in the background.
+    // A solved puzzle has nothing left to resume.
+    private void autosave() {
+        if (board.isSolved()) {
+            SessionStore.getDefault().delete();
+            return;
+        }
+        try {
+            SessionStore.getDefault().save(writeSession());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Save now and wait until the session, and the recording of the game, are on disk
+    private void saveNow() {
+        autosaveTimer.stop();
+        autosave();
+        SessionStore.getDefault().flush();
+        Leaderboard.flush();
+        recorder.finish();
+    }
+
+    // Keep the solved game on the leaderboard, once, even if it is undone and solved again
+    private void addToLeaderboard() {
+        if (ranked) {
+            return;
+        }
+        ranked = true;
+        // Appended on the leaderboard's writer thread, like the autosave
+        Leaderboard.submit(new Leaderboard.Entry(playerName, game.getSize(), game.getDifficulty(),
+                game.getElapsed(), game.getScore(), game.getHintsUsed(), System.currentTimeMillis()));
+    }
+
+    // Play the game back from its start in a window of its own
+    private void showReplay() {
+        try {
+            new ReplayFrame(recorder.replay());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Could not replay the game: " + e.getMessage(),
+                    "Replay", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // The session body: the player's name, then the whole game
+    private byte[] writeSession() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(playerName);
+        game.writeTo(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
     @Override
     public void dispose() {
+        saveNow();
         stopTimer();
-        if (backgroundClip != null && backgroundClip.isRunning()) {
-            backgroundClip.stop();
-            backgroundClip.close();
-        }
-        super.dispose();
+        super.dispose(); // the music plays on into the welcome screen, or stops at exit
     }
 
-    public void updateScore(int points) {
-        score += points;
-        scoreLabel.setText("Score: " + score);
+    /** Show the explanation of a hint below the board */
+    public void showHint(String text) {
+        hintLabel.setText(text);
+        hintLabel.setToolTipText(text);
     }
 
     public void playCorrectSound() {
-        playSound(correctSoundClip);
+        AudioService.getInstance().play(CORRECT_SOUND, Channel.EFFECTS);
     }
 
     public void playIncorrectSound() {
-        playSound(incorrectSoundClip);
+        AudioService.getInstance().play(INCORRECT_SOUND, Channel.EFFECTS);
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        metrics.firstFrame();
     }
 
     public static void main(String[] args) {
+        AssetPreloader.preloadAll(); // in parallel with building the window
         SwingUtilities.invokeLater(() -> new WelcomeScreen());
     }
 }
\ No newline at end of file
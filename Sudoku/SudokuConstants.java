@@ -6,6 +6,8 @@ public class SudokuConstants {
     /** Size of sub-grid of the board */
     public static final int SUBGRID_SIZE = 3;
 
+    // Difficulty levels, graded by DifficultyGrader from the techniques a puzzle
+    // needs. The value is also the least number of cells the generator blanks.
     public static final int EASY = 20;    // Kosongkan 20 sel
     public static final int MEDIUM = 40; // Kosongkan 40 sel
     public static final int HARD = 60;   // Kosongkan 60 sel
@@ -0,0 +1,763 @@
+package Sudoku;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The SudokuGame class is a game of Sudoku without any user interface: the
+ * puzzle, what the player has entered, pencil marks, score, hints, time and
+ * the undo journal, with the rules that change them. GameBoardPanel and
+ * Sudoku only show it, and learn what changed through a Listener.
+ *
+ * Nothing here touches AWT or Swing, so games can be played headless, by
+ * tests, bots or load generators, as fast as the rules allow. Not thread-safe:
+ * use a game from one thread, the event thread when it is shown.
+ */
+public class SudokuGame {
+    /** Points for a cell the player gets right, the first time only */
+    public static final int POINTS_CORRECT = 10;
+    /** Flags of a cell's number byte in writeTo() */
+    static final int GIVEN_BIT = 0x80;
+    static final int SCORED_BIT = 0x40;
+
+    /** Receives every change to a game; all methods do nothing by default */
+    public interface Listener {
+        /** A new game was dealt, or the board resized or restored: every cell changed */
+        default void gameStarted() { }
+
+        /** The number, status, notes or conflict of one cell changed */
+        default void cellChanged(int row, int col) { }
+
+        /** The player made a move, or one was undone or redone */
+        default void moveMade() { }
+
+        default void scoreChanged(int score) { }
+
+        /** A hint filled in its cell */
+        default void hintUsed(HintEngine.Hint hint) { }
+
+        default void timeChanged(int seconds) { }
+
+        /** Every cell is filled and nothing clashes */
+        default void solved() { }
+    }
+
+    private final Random random;
+    private final List<Listener> listeners = new ArrayList<>();
+    private int size;    // rows, columns and digits
+    private int boxSize;
+    private int difficulty;
+    private Puzzle puzzle;
+    private Puzzle banked; // refilled by every game drawn from the PuzzleBank
+    // Per cell, row-major
+    private int[] numbers;
+    private CellStatus[] status;
+    private int[] notes;
+    private boolean[] conflicts;
+    private boolean[] scored; // earned points already, so undo and redo earn none
+    private int[] solutionDigits;
+    private ConflictTracker tracker; // digits on the board, per row, column and box
+    private MoveJournal journal = new MoveJournal(); // moves that can be undone and redone
+    private boolean newAction; // the next move recorded starts a new action
+    private boolean pencilMode;     // entered digits toggle notes instead of guessing
+    private boolean autoCandidates; // notes follow the digits on the board
+    private HintEngine hints; // created on the first hint
+    private SessionRecorder recorder; // null if the game is not recorded
+    private int score;
+    private int hintsUsed;
+    private int maxHints = Integer.MAX_VALUE;
+    private int elapsed; // seconds
+    private boolean paused;
+
+    public SudokuGame() {
+        this(SudokuConstants.GRID_SIZE);
+    }
+
+    public SudokuGame(int size) {
+        this(size, new Random());
+    }
+
+    /** A game of size x size cells (9, 16 or 25) drawing its randomness from random */
+    public SudokuGame(int size, Random random) {
+        this.random = random;
+        setSize(size);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Record every command from now on, starting from the game as it is; null to stop */
+    public void setRecorder(SessionRecorder recorder) {
+        this.recorder = recorder;
+        if (recorder != null) {
+            recorder.begin(this);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getBoxSize() {
+        return boxSize;
+    }
+
+    /** Change the board size; the board is empty until newGame() */
+    public void setSize(int size) {
+        if (numbers != null && size == this.size) {
+            return;
+        }
+        this.size = size;
+        boxSize = (int) Math.round(Math.sqrt(size));
+        int cells = size * size;
+        numbers = new int[cells];
+        status = new CellStatus[cells];
+        notes = new int[cells];
+        conflicts = new boolean[cells];
+        scored = new boolean[cells];
+        solutionDigits = new int[cells];
+        tracker = new ConflictTracker(size);
+        if (hints != null) {
+            hints.shutdown();
+            hints = null;
+        }
+        puzzle = new Puzzle(size, random);
+        deal();
+    }
+
+    /**
+     * Deal a new puzzle with difficulty cells to guess. The hint allowance
+     * starts again from the difficulty, the score and hints used from zero.
+     */
+    public void newGame(int difficulty) {
+        // Pick a stored puzzle if a bank is installed, otherwise a ready-made one
+        // generated in the background; on larger boards the difficulty is scaled
+        // to the board
+        PuzzleBank bank = size == SudokuConstants.GRID_SIZE ? PuzzleBank.getDefault() : null;
+        if (bank != null && banked == null) {
+            banked = new Puzzle(size, random);
+        }
+        Puzzle next = null;
+        try {
+            if (bank != null && bank.random(difficulty, banked)) {
+                next = banked;
+            }
+        } catch (IOException e) {
+            e.printStackTrace(); // a corrupt record, deal from the pool instead
+        }
+        if (next == null) {
+            next = PuzzlePool.getInstance().take(size, difficulty);
+        }
+        this.difficulty = difficulty;
+        maxHints = hintsFor(difficulty);
+        newGame(next);
+    }
+
+    /** Deal the given puzzle, which must be of this game's size */
+    public void newGame(Puzzle puzzle) {
+        if (puzzle.size != size) {
+            throw new IllegalArgumentException("Puzzle is " + puzzle.size + " x " + puzzle.size
+                    + ", the board " + size + " x " + size);
+        }
+        this.puzzle = puzzle;
+        elapsed = 0;
+        deal();
+        resetScore();
+        for (Listener listener : listeners) {
+            listener.timeChanged(elapsed);
+        }
+        fireMoveMade();
+        if (recorder != null) {
+            recorder.begin(this);
+        }
+    }
+
+    /** Hints allowed for a game of the given difficulty */
+    public static int hintsFor(int difficulty) {
+        switch (difficulty) {
+            case SudokuConstants.MEDIUM:
+                return 5;
+            case SudokuConstants.HARD:
+                return 7;
+            default:
+                return 3;
+        }
+    }
+
+    // Reset the cells to the puzzle's givens
+    private void deal() {
+        Arrays.fill(scored, false);
+        Arrays.fill(notes, 0);
+        Arrays.fill(conflicts, false);
+        tracker.clear();
+        for (int row = 0; row < size; ++row) {
+            for (int col = 0; col < size; ++col) {
+                int i = row * size + col;
+                solutionDigits[i] = puzzle.solution[row][col];
+                if (puzzle.isGiven[row][col]) {
+                    // Sel yang diberikan dikunci dan menampilkan angkanya
+                    numbers[i] = puzzle.numbers[row][col];
+                    status[i] = CellStatus.GIVEN;
+                    tracker.set(row, col, numbers[i]);
+                } else {
+                    // Sel kosong diisi oleh pemain
+                    numbers[i] = 0;
+                    status[i] = CellStatus.TO_GUESS;
+                }
+            }
+        }
+        for (Listener listener : listeners) {
+            listener.gameStarted();
+        }
+        if (autoCandidates) {
+            fillCandidates();
+        }
+        journal.clear(); // the starting position is not a move
+    }
+
+    public int getDifficulty() {
+        return difficulty;
+    }
+
+    public int getNumber(int row, int col) {
+        return numbers[row * size + col];
+    }
+
+    public CellStatus getStatus(int row, int col) {
+        return status[row * size + col];
+    }
+
+    /** Pencil marks of the cell: bit digit-1 is set if digit is noted */
+    public int getNotes(int row, int col) {
+        return notes[row * size + col];
+    }
+
+    /** True if the cell's number clashes with another in its row, column or box */
+    public boolean isConflict(int row, int col) {
+        return conflicts[row * size + col];
+    }
+
+    /** True if the player can still change the cell's number */
+    public boolean isEditable(int row, int col) {
+        return isEditable(row * size + col);
+    }
+
+    private boolean isEditable(int i) {
+        return status[i] == CellStatus.TO_GUESS || status[i] == CellStatus.WRONG_GUESS;
+    }
+
+    public int getSolution(int row, int col) {
+        return solutionDigits[row * size + col];
+    }
+
+    /** Every cell filled and nothing clashes */
+    public boolean isSolved() {
+        return tracker.isComplete();
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isPencilMode() {
+        return pencilMode;
+    }
+
+    public void setPencilMode(boolean pencilMode) {
+        if (recorder != null && pencilMode != this.pencilMode) {
+            recorder.recordFlag(SessionRecorder.PENCIL, pencilMode);
+        }
+        this.pencilMode = pencilMode;
+    }
+
+    public boolean isAutoCandidates() {
+        return autoCandidates;
+    }
+
+    /**
+     * Turn automatic pencil marks on or off. Turning them on notes every
+     * candidate of every empty cell, as one undoable action; after that each
+     * digit entered or cleared only updates the cells sharing a unit with it.
+     */
+    public void setAutoCandidates(boolean autoCandidates) {
+        if (recorder != null && autoCandidates != this.autoCandidates) {
+            recorder.recordFlag(SessionRecorder.AUTO, autoCandidates);
+        }
+        this.autoCandidates = autoCandidates;
+        if (autoCandidates) {
+            newAction = true;
+            fillCandidates();
+            fireMoveMade();
+        }
+    }
+
+    /**
+     * The player enters number [1-size] into the cell; in pencil mode an
+     * empty cell notes the number, or un-notes it, instead. Returns false if
+     * the cell cannot be changed.
+     */
+    public boolean enter(int row, int col, int number) {
+        if (number < 1 || number > size) {
+            throw new IllegalArgumentException("Number " + number + " is not between 1 and " + size);
+        }
+        int i = row * size + col;
+        if (!isEditable(i)) {
+            return false;
+        }
+        if (recorder != null) {
+            recorder.record(SessionRecorder.ENTER, i, number);
+        }
+        if (pencilMode && numbers[i] == 0) {
+            newAction = true;
+            setNotes(i, notes[i] ^ 1 << (number - 1));
+        } else {
+            // newPuzzle guarantees a unique solution, so no valid answer is rejected
+            place(i, number, MoveJournal.ENTRY);
+        }
+        fireMoveMade();
+        return true;
+    }
+
+    /**
+     * The player clears the cell's number, or in pencil mode the notes of an
+     * empty cell. Returns false if there was nothing to clear.
+     */
+    public boolean clear(int row, int col) {
+        int i = row * size + col;
+        if (!isEditable(i)) {
+            return false;
+        }
+        if (pencilMode && numbers[i] == 0) {
+            if (notes[i] == 0) {
+                return false;
+            }
+            newAction = true;
+            setNotes(i, 0);
+        } else {
+            if (numbers[i] == 0) {
+                return false;
+            }
+            place(i, 0, MoveJournal.ENTRY);
+        }
+        if (recorder != null) {
+            recorder.record(SessionRecorder.CLEAR, i);
+        }
+        fireMoveMade();
+        return true;
+    }
+
+    public boolean canHint() {
+        return hintsUsed < maxHints;
+    }
+
+    public int getHintsUsed() {
+        return hintsUsed;
+    }
+
+    public int getHintsLeft() {
+        return Math.max(maxHints - hintsUsed, 0);
+    }
+
+    /** The engine finding hints for this board, for callers that search in the background */
+    public HintEngine getHintEngine() {
+        if (hints == null) {
+            hints = new HintEngine(size);
+        }
+        return hints;
+    }
+
+    /**
+     * The digits a hint may build on, row-major: givens and correct guesses,
+     * 0 for the other cells
+     */
+    public int[] knownDigits() {
+        int[] known = new int[size * size];
+        for (int i = 0; i < known.length; ++i) {
+            boolean isKnown = status[i] == CellStatus.GIVEN || status[i] == CellStatus.CORRECT_GUESS;
+            known[i] = isKnown ? numbers[i] : 0;
+        }
+        return known;
+    }
+
+    /** The solution, row-major */
+    public int[] solutionDigits() {
+        return solutionDigits.clone();
+    }
+
+    /**
+     * Find a hint and use it, on the calling thread. Returns null if no hint
+     * is left or the board is already full.
+     */
+    public HintEngine.Hint hint() {
+        if (!canHint()) {
+            return null;
+        }
+        HintEngine.Hint hint = getHintEngine().find(knownDigits(), solutionDigits);
+        return hint != null && useHint(hint) ? hint : null;
+    }
+
+    /**
+     * Fill in a hint found for this board: its cell becomes correct and
+     * locked, and one hint is used up. Returns false, changing nothing, if no
+     * hint is left or the hint no longer fits, e.g. it was found for another
+     * game or its cell has been filled since.
+     */
+    public boolean useHint(HintEngine.Hint hint) {
+        int i = hint.cell;
+        if (!canHint() || i >= size * size || !isEditable(i) || hint.digit != solutionDigits[i]) {
+            return false;
+        }
+        if (recorder != null) {
+            recorder.recordHint(i, hint.digit, hint.technique);
+        }
+        hintsUsed++;
+        place(i, hint.digit, MoveJournal.HINT);
+        for (Listener listener : listeners) {
+            listener.hintUsed(hint);
+        }
+        fireMoveMade();
+        return true;
+    }
+
+    public boolean canUndo() {
+        return journal.canUndo();
+    }
+
+    public boolean canRedo() {
+        return journal.canRedo();
+    }
+
+    /**
+     * Take back the last action: a digit with its effect on notes, a note, or
+     * a hint. Returns the cell (row * size + col) it changed first, or -1 if
+     * there was nothing to undo.
+     */
+    public int undo() {
+        if (!journal.canUndo()) {
+            return -1;
+        }
+        if (recorder != null) {
+            recorder.record(SessionRecorder.UNDO);
+        }
+        int move;
+        do {
+            move = journal.undo();
+            replay(move, false);
+        } while (MoveJournal.continues(move) && journal.canUndo());
+        fireMoveMade();
+        return MoveJournal.cell(move);
+    }
+
+    /** Do the last action taken back by undo() again; returns its cell, or -1 */
+    public int redo() {
+        if (!journal.canRedo()) {
+            return -1;
+        }
+        if (recorder != null) {
+            recorder.record(SessionRecorder.REDO);
+        }
+        int first = journal.redo();
+        replay(first, true);
+        while (journal.canRedo() && MoveJournal.continues(journal.peekRedo())) {
+            replay(journal.redo(), true);
+        }
+        fireMoveMade();
+        return MoveJournal.cell(first);
+    }
+
+    /**
+     * Play the puzzle again from the start: every move is undone, redo()
+     * still works, and the clock, score and hints used start again from zero
+     */
+    public void restart() {
+        if (recorder != null) {
+            recorder.record(SessionRecorder.RESTART);
+        }
+        while (journal.canUndo()) {
+            replay(journal.undo(), false);
+        }
+        Arrays.fill(scored, false); // the cells earn their points again
+        resetScore();
+        elapsed = 0;
+        for (Listener listener : listeners) {
+            listener.timeChanged(elapsed);
+        }
+        fireMoveMade();
+    }
+
+    // Per-game tally: nothing earned and no hint taken yet
+    private void resetScore() {
+        score = 0;
+        hintsUsed = 0;
+        for (Listener listener : listeners) {
+            listener.scoreChanged(score);
+        }
+    }
+
+    public int getElapsed() {
+        return elapsed;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public void setPaused(boolean paused) {
+        if (recorder != null && paused != this.paused) {
+            recorder.record(paused ? SessionRecorder.PAUSE : SessionRecorder.RESUME);
+        }
+        this.paused = paused;
+    }
+
+    /** One second has passed; it counts unless the game is paused */
+    public void tick() {
+        if (!paused) {
+            elapsed++;
+            for (Listener listener : listeners) {
+                listener.timeChanged(elapsed);
+            }
+        }
+    }
+
+    /**
+     * Write the whole game for SessionStore: difficulty, size, time, score,
+     * hints, modes, then per cell the solution digit, one byte with the number
+     * and the GIVEN_BIT and SCORED_BIT flags, and the notes, then the journal.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(difficulty);
+        out.writeByte(size);
+        out.writeInt(elapsed);
+        out.writeInt(score);
+        out.writeInt(hintsUsed);
+        out.writeInt(maxHints);
+        out.writeBoolean(pencilMode);
+        out.writeBoolean(autoCandidates);
+        for (int i = 0; i < size * size; ++i) {
+            int flags = (status[i] == CellStatus.GIVEN ? GIVEN_BIT : 0) | (scored[i] ? SCORED_BIT : 0);
+            out.writeByte(solutionDigits[i]);
+            out.writeByte(numbers[i] | flags);
+            out.writeInt(notes[i]);
+        }
+        journal.writeTo(out);
+    }
+
+    /** Replace this game with one written by writeTo() */
+    public void readFrom(DataInput in) throws IOException {
+        int savedDifficulty = in.readInt();
+        int savedSize = in.readUnsignedByte();
+        int box = (int) Math.round(Math.sqrt(savedSize));
+        if (savedSize < 4 || savedSize > MoveJournal.MAX_VALUE || box * box != savedSize) {
+            throw new IOException("Unsupported board size " + savedSize);
+        }
+        int savedElapsed = in.readInt();
+        int savedScore = in.readInt();
+        int savedHintsUsed = in.readInt();
+        int savedMaxHints = in.readInt();
+        boolean savedPencilMode = in.readBoolean();
+        boolean savedAutoCandidates = in.readBoolean();
+        int cells = savedSize * savedSize;
+        Puzzle saved = new Puzzle(savedSize, random);
+        int[] savedSolution = new int[cells];
+        int[] savedNumbers = new int[cells];
+        int[] savedFlags = new int[cells];
+        int[] savedNotes = new int[cells];
+        for (int i = 0; i < cells; ++i) {
+            int row = i / savedSize;
+            int col = i % savedSize;
+            int solution = in.readUnsignedByte();
+            int b = in.readUnsignedByte();
+            savedNumbers[i] = b & ~(GIVEN_BIT | SCORED_BIT);
+            savedFlags[i] = b & (GIVEN_BIT | SCORED_BIT);
+            savedNotes[i] = in.readInt();
+            if (solution < 1 || solution > savedSize || savedNumbers[i] > savedSize) {
+                throw new IOException("Corrupt board at row " + (row + 1) + ", column " + (col + 1));
+            }
+            savedSolution[i] = solution;
+            saved.solution[row][col] = solution;
+            saved.isGiven[row][col] = (savedFlags[i] & GIVEN_BIT) != 0;
+            saved.numbers[row][col] = saved.isGiven[row][col] ? solution : 0;
+        }
+        // The saved solution decides which guesses are right, so it has to be
+        // the givens' only one. Where the search gives up, on a sparse 25x25
+        // board, the saved one is trusted.
+        if (saved.solve()) {
+            for (int i = 0; i < cells; ++i) {
+                if (saved.solution[i / savedSize][i % savedSize] != savedSolution[i]) {
+                    throw new IOException("Saved solution does not solve the puzzle");
+                }
+            }
+        } else if (saved.countSolutions(2) >= 0) {
+            throw new IOException("Saved puzzle does not have a single solution");
+        }
+        MoveJournal savedJournal = new MoveJournal();
+        savedJournal.readFrom(in, savedSize);
+
+        // Everything is read, now replace the game
+        setSize(savedSize);
+        difficulty = savedDifficulty;
+        puzzle = saved;
+        pencilMode = savedPencilMode;
+        autoCandidates = false; // the saved notes are used as they are
+        deal();
+        autoCandidates = savedAutoCandidates;
+        for (int i = 0; i < cells; ++i) {
+            if (status[i] != CellStatus.GIVEN && savedNumbers[i] != 0) {
+                showDigit(i, savedNumbers[i], false);
+            }
+            notes[i] = savedNotes[i];
+            scored[i] = (savedFlags[i] & SCORED_BIT) != 0;
+        }
+        journal = savedJournal;
+        elapsed = savedElapsed;
+        score = savedScore;
+        hintsUsed = savedHintsUsed;
+        maxHints = savedMaxHints;
+        for (Listener listener : listeners) {
+            listener.gameStarted();
+            listener.scoreChanged(score);
+            listener.timeChanged(elapsed);
+        }
+        if (recorder != null) {
+            recorder.begin(this);
+        }
+    }
+
+    // Apply a recorded move again, or revert it. Notes are not followed here:
+    // the changes they got were recorded as moves of their own.
+    private void replay(int move, boolean forward) {
+        int i = MoveJournal.cell(move);
+        if (MoveJournal.kind(move) == MoveJournal.NOTE) {
+            notes[i] ^= 1 << (MoveJournal.newValue(move) - 1);
+            fireCellChanged(i);
+        } else {
+            showDigit(i, forward ? MoveJournal.newValue(move) : MoveJournal.oldValue(move), false);
+        }
+    }
+
+    // Record a move that has just been made, as part of the current action
+    private void record(int kind, int i, int oldValue, int newValue) {
+        journal.add(kind, i, oldValue, newValue, !newAction);
+        newAction = false;
+    }
+
+    // Note every candidate of every empty cell
+    private void fillCandidates() {
+        for (int row = 0; row < size; ++row) {
+            for (int col = 0; col < size; ++col) {
+                int i = row * size + col;
+                setNotes(i, numbers[i] == 0 ? tracker.candidates(row, col) : 0);
+            }
+        }
+    }
+
+    // Replace a cell's notes, recording one move per digit noted or un-noted
+    private void setNotes(int i, int cellNotes) {
+        for (int bits = notes[i] ^ cellNotes; bits != 0; bits &= bits - 1) {
+            record(MoveJournal.NOTE, i, 0, Integer.numberOfTrailingZeros(bits) + 1);
+        }
+        if (notes[i] != cellNotes) {
+            notes[i] = cellNotes;
+            fireCellChanged(i);
+        }
+    }
+
+    // Put a digit (0 to clear) into the cell as a new action of the given kind
+    private void place(int i, int digit, int kind) {
+        if (numbers[i] == digit) {
+            return; // nothing changes, so nothing to undo
+        }
+        newAction = true;
+        record(kind, i, numbers[i], digit);
+        showDigit(i, digit, true);
+        if (status[i] == CellStatus.CORRECT_GUESS && !scored[i]) {
+            scored[i] = true;
+            if (kind == MoveJournal.ENTRY) {
+                score += POINTS_CORRECT;
+                for (Listener listener : listeners) {
+                    listener.scoreChanged(score);
+                }
+            }
+        }
+        if (isSolved()) {
+            for (Listener listener : listeners) {
+                listener.solved();
+            }
+        }
+    }
+
+    // Show a digit in the cell with the status it earns, and update the board
+    private void showDigit(int i, int digit, boolean followNotes) {
+        numbers[i] = digit;
+        if (digit == 0) {
+            status[i] = CellStatus.TO_GUESS;
+        } else if (digit == solutionDigits[i]) {
+            status[i] = CellStatus.CORRECT_GUESS; // Jawaban benar
+        } else {
+            status[i] = CellStatus.WRONG_GUESS; // Jawaban salah
+        }
+        fireCellChanged(i);
+        setDigit(i / size, i % size, digit, followNotes); // Tandai sel yang bentrok
+    }
+
+    // Enter a digit (0 to clear) and update the cells sharing a unit with it:
+    // their conflict flag and, if followNotes, their notes, which lose the
+    // placed digit and, with automatic notes, get back the cleared one where it
+    // fits again. No other cell can be affected.
+    private void setDigit(int row, int col, int digit, boolean followNotes) {
+        int cleared = tracker.get(row, col);
+        tracker.set(row, col, digit);
+        int placedBit = digit == 0 || !followNotes ? 0 : 1 << (digit - 1);
+        int clearedBit = cleared == 0 || !autoCandidates || !followNotes ? 0 : 1 << (cleared - 1);
+        if (digit == 0 && autoCandidates && followNotes) {
+            setNotes(row * size + col, tracker.candidates(row, col));
+        }
+        for (int i = 0; i < size; ++i) {
+            updatePeer(row, i, placedBit, clearedBit);
+            updatePeer(i, col, placedBit, clearedBit);
+        }
+        int top = row - row % boxSize;
+        int left = col - col % boxSize;
+        for (int r = top; r < top + boxSize; ++r) {
+            for (int c = left; c < left + boxSize; ++c) {
+                updatePeer(r, c, placedBit, clearedBit);
+            }
+        }
+    }
+
+    private void updatePeer(int row, int col, int placedBit, int clearedBit) {
+        int i = row * size + col;
+        int cellNotes = notes[i] & ~placedBit;
+        if (numbers[i] == 0 && (tracker.candidates(row, col) & clearedBit) != 0) {
+            cellNotes |= clearedBit;
+        }
+        setNotes(i, cellNotes);
+        boolean conflict = tracker.isConflict(row, col);
+        if (conflicts[i] != conflict) {
+            conflicts[i] = conflict;
+            fireCellChanged(i);
+        }
+    }
+
+    private void fireCellChanged(int i) {
+        for (Listener listener : listeners) {
+            listener.cellChanged(i / size, i % size);
+        }
+    }
+
+    private void fireMoveMade() {
+        for (Listener listener : listeners) {
+            listener.moveMade();
+        }
+    }
+}
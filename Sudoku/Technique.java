@@ -0,0 +1,36 @@
+package Sudoku;
+
+/**
+ * The solving techniques known to LogicSolver, from easiest to hardest.
+ * Each one carries the weight it adds to a puzzle's rating every time it is
+ * needed.
+ */
+public enum Technique {
+    NAKED_SINGLE("Naked single", 1),
+    HIDDEN_SINGLE("Hidden single", 2),
+    POINTING("Pointing", 5),
+    BOX_LINE_REDUCTION("Box/line reduction", 6),
+    NAKED_PAIR("Naked pair", 8),
+    HIDDEN_PAIR("Hidden pair", 10),
+    NAKED_TRIPLE("Naked triple", 12),
+    HIDDEN_TRIPLE("Hidden triple", 14),
+    X_WING("X-Wing", 18),
+    SWORDFISH("Swordfish", 24),
+    GUESS("Guess", 60);    // no known technique applies
+
+    private final String displayName;
+    private final int weight;
+
+    private Technique(String displayName, int weight) {
+        this.displayName = displayName;
+        this.weight = weight;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+}
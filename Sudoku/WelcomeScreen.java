@@ -2,28 +2,39 @@ package Sudoku;
 
 import java.awt.*;
 import javax.swing.*;
-import javax.sound.sampled.*;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
-import java.io.File;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import javax.swing.table.DefaultTableModel;
+import Audio.AudioService;
 
 public class WelcomeScreen extends JFrame {
     private static final long serialVersionUID = 1L;
+    public static final String TITLE_IMAGE = "Sudoku/desainsudoku1.png";
     private Color backgroundColor = new Color(128, 0, 128); // Purple background
     private Color textColor = Color.WHITE; // White text for player name
-    private Clip backgroundClip;
     private JSlider volumeSlider;
     private JTextField playerNameField;
     private JLabel lblWelcome;
-    private Image originalImage;
+    private Image originalImage; // null until it has loaded
+    private final StartupMetrics metrics = StartupMetrics.forWindow("Welcome screen");
 
     public WelcomeScreen() {
         setTitle("Sudoku Game");
         setSize(500, 600);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        // Play background music
-        playBackgroundMusic("src\\Sudoku\\backsound.wav");
+        // Start generating puzzles while the player is still on this screen
+        PuzzlePool.getInstance().warmUp();
+        Leaderboard.warmUp();
+
+        // Play background music; it carries on into the game
+        AudioService.getInstance().playMusic(Sudoku.MUSIC);
 
         // Set background color
         getContentPane().setBackground(backgroundColor);
@@ -34,15 +45,19 @@ public class WelcomeScreen extends JFrame {
         titlePanel.setPreferredSize(new Dimension(500, 150));
         titlePanel.setOpaque(false); // Make the panel transparent
 
-        // Load your image
-        ImageIcon originalIcon = new ImageIcon("src/Sudoku/desainsudoku1.png");
-        originalImage = originalIcon.getImage();
-
         // Create a JLabel with the image
         lblWelcome = new JLabel();
         lblWelcome.setHorizontalAlignment(JLabel.CENTER);
         titlePanel.add(lblWelcome, BorderLayout.NORTH); // Align image to the top
 
+        // The image loads in the background and is shown once it arrives
+        CompletableFuture<BufferedImage> titleImage = AssetPreloader.image(TITLE_IMAGE);
+        titleImage.thenAccept(image -> SwingUtilities.invokeLater(() -> {
+            originalImage = image;
+            resizeImage(titlePanel.getWidth(), titlePanel.getHeight());
+        }));
+        titleImage.thenRun(() -> SwingUtilities.invokeLater(metrics::interactive));
+
         // Add a component listener to resize the image when the panel size changes
         addComponentListener(new ComponentAdapter() {
             @Override
@@ -74,18 +89,29 @@ public class WelcomeScreen extends JFrame {
         menuPanel.add(Box.createRigidArea(new Dimension(0, 20)));
 
         JButton btnPlayGame = createStyledButton("Play Game");
+        JButton btnResume = createStyledButton("Resume Game");
+        JButton btnLeaderboard = createStyledButton("Leaderboard");
         JButton btnOptions = createStyledButton("Options");
         JButton btnExit = createStyledButton("Exit");
 
         // Add spacing between buttons
         addButtonToPanel(menuPanel, btnPlayGame);
         menuPanel.add(Box.createRigidArea(new Dimension(0, 20)));
+        // Only offered when a game was left unfinished
+        if (SessionStore.getDefault().exists()) {
+            addButtonToPanel(menuPanel, btnResume);
+            menuPanel.add(Box.createRigidArea(new Dimension(0, 20)));
+        }
+        addButtonToPanel(menuPanel, btnLeaderboard);
+        menuPanel.add(Box.createRigidArea(new Dimension(0, 20)));
         addButtonToPanel(menuPanel, btnOptions);
         menuPanel.add(Box.createRigidArea(new Dimension(0, 20)));
         addButtonToPanel(menuPanel, btnExit);
 
         // Action listeners
         btnPlayGame.addActionListener(e -> showDifficultySelection());
+        btnResume.addActionListener(e -> resumeGame());
+        btnLeaderboard.addActionListener(e -> showLeaderboard());
         btnOptions.addActionListener(e -> showOptions());
         btnExit.addActionListener(e -> System.exit(0));
 
@@ -97,7 +123,7 @@ public class WelcomeScreen extends JFrame {
     }
 
     private void resizeImage(int panelWidth, int panelHeight) {
-        if (originalImage == null) {
+        if (originalImage == null || panelWidth <= 0 || panelHeight <= 0) {
             return;
         }
 
@@ -123,20 +149,89 @@ public class WelcomeScreen extends JFrame {
         lblWelcome.setIcon(new ImageIcon(scaledImage));
     }
 
-    private void playBackgroundMusic(String filePath) {
-        try {
-            AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(new File(filePath));
-            backgroundClip = AudioSystem.getClip();
-            backgroundClip.open(audioInputStream);
+    // The fastest games of every board played, a tab per board
+    private void showLeaderboard() {
+        JDialog leaderboardDialog = new JDialog(this, "Leaderboard", true);
+        leaderboardDialog.setLayout(new BorderLayout(10, 10));
+        leaderboardDialog.setSize(560, 420);
+        leaderboardDialog.getContentPane().setBackground(backgroundColor);
 
-            // Use VolumeManager to manage volume
-            VolumeManager.getInstance().setCurrentClip(backgroundClip);
+        Leaderboard leaderboard = Leaderboard.getDefault();
+        String playerName = playerNameField.getText().trim();
+        List<int[]> boards = leaderboard.boards();
+        if (boards.isEmpty()) {
+            JLabel emptyLabel = new JLabel("No games solved yet.", JLabel.CENTER);
+            emptyLabel.setFont(new Font("Poppins", Font.BOLD, 16));
+            emptyLabel.setForeground(textColor);
+            leaderboardDialog.add(emptyLabel, BorderLayout.CENTER);
+        } else {
+            JTabbedPane tabs = new JTabbedPane();
+            for (int[] board : boards) {
+                tabs.addTab(boardName(board[0], board[1]),
+                        createLeaderboardTab(leaderboard, board[0], board[1], playerName));
+            }
+            leaderboardDialog.add(tabs, BorderLayout.CENTER);
+        }
 
-            backgroundClip.loop(Clip.LOOP_CONTINUOUSLY);
-            backgroundClip.start();
-        } catch (Exception e) {
-            e.printStackTrace();
+        JButton btnClose = createStyledButton("Close");
+        btnClose.addActionListener(e -> leaderboardDialog.dispose());
+        JPanel closePanel = new JPanel();
+        closePanel.setBackground(backgroundColor);
+        closePanel.add(btnClose);
+        leaderboardDialog.add(closePanel, BorderLayout.SOUTH);
+
+        leaderboardDialog.setLocationRelativeTo(this);
+        leaderboardDialog.setVisible(true);
+    }
+
+    private JPanel createLeaderboardTab(Leaderboard leaderboard, int size, int difficulty, String playerName) {
+        DefaultTableModel model = new DefaultTableModel(new Object[] {"#", "Player", "Time", "Score", "Hints", "Date"}, 0) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        int rank = 1;
+        for (Leaderboard.Entry entry : leaderboard.top(size, difficulty)) {
+            model.addRow(new Object[] {rank++, entry.player, formatTime(entry.seconds), entry.score,
+                    entry.hints, dateFormat.format(new Date(entry.date))});
         }
+        JTable table = new JTable(model);
+        table.setFont(new Font("Poppins", Font.PLAIN, 14));
+        table.setRowHeight(24);
+
+        JPanel tab = new JPanel(new BorderLayout(5, 5));
+        tab.setBackground(backgroundColor);
+        tab.add(new JScrollPane(table), BorderLayout.CENTER);
+
+        // The player's own best, if they have typed their name
+        Leaderboard.Best best = playerName.isEmpty() ? null : leaderboard.best(playerName, size, difficulty);
+        if (best != null) {
+            JLabel bestLabel = new JLabel("Your best: " + formatTime(best.seconds) + ", score " + best.score
+                    + ", " + best.games + (best.games == 1 ? " game" : " games") + " solved", JLabel.CENTER);
+            bestLabel.setFont(new Font("Poppins", Font.BOLD, 14));
+            bestLabel.setForeground(textColor);
+            tab.add(bestLabel, BorderLayout.SOUTH);
+        }
+        return tab;
+    }
+
+    private static String boardName(int size, int difficulty) {
+        String level;
+        switch (difficulty) {
+            case SudokuConstants.EASY: level = "Easy"; break;
+            case SudokuConstants.MEDIUM: level = "Medium"; break;
+            case SudokuConstants.HARD: level = "Hard"; break;
+            default: level = difficulty + " blanks";
+        }
+        return size + "x" + size + " " + level;
+    }
+
+    private static String formatTime(int seconds) {
+        return String.format("%02d:%02d", seconds / 60, seconds % 60);
     }
 
     private void showOptions() {
@@ -257,16 +352,24 @@ public class WelcomeScreen extends JFrame {
         dispose();
     }
 
-    @Override
-    public void dispose() {
-        if (backgroundClip != null && backgroundClip.isRunning()) {
-            backgroundClip.stop();
-            backgroundClip.close();
+    private void resumeGame() {
+        try {
+            Sudoku.resume();
+            dispose();
+        } catch (IOException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this, "The saved game could not be loaded.", "Error", JOptionPane.ERROR_MESSAGE);
         }
-        super.dispose();
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        metrics.firstFrame();
     }
 
     public static void main(String[] args) {
+        AssetPreloader.preloadAll(); // in parallel with building the window
         SwingUtilities.invokeLater(() -> new WelcomeScreen());
     }
 }
\ No newline at end of file
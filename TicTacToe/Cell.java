@@ -34,7 +34,7 @@ public class Cell {
         int x1 = col * SIZE + PADDING;
         int y1 = row * SIZE + PADDING;
         if (content == Seed.CROSS || content == Seed.NOUGHT) {
-            g.drawImage(content.getImage(), x1, y1, SEED_SIZE, SEED_SIZE, null);
+            SpriteCache.draw(g, content.getImage(), x1, y1, SEED_SIZE, SEED_SIZE);
         }
     }
 }
\ No newline at end of file
@@ -156,9 +156,9 @@ public class Othello extends JPanel {
                 g.setColor(Color.BLACK);
                 g.drawRect(x, y, CELL_SIZE, CELL_SIZE);
                 if (board[row][col] == Seed.BLACK) {
-                    g.drawImage(blackPieceImage, x + 5, y + 5, CELL_SIZE - 10, CELL_SIZE - 10, this);
+                    SpriteCache.draw(g, blackPieceImage, x + 5, y + 5, CELL_SIZE - 10, CELL_SIZE - 10);
                 } else if (board[row][col] == Seed.WHITE) {
-                    g.drawImage(whitePieceImage, x + 5, y + 5, CELL_SIZE - 10, CELL_SIZE - 10, this);
+                    SpriteCache.draw(g, whitePieceImage, x + 5, y + 5, CELL_SIZE - 10, CELL_SIZE - 10);
                 }
             }
         }
@@ -1,15 +1,11 @@
 package TicTacToe;
 
 import javax.swing.*;
-import javax.sound.sampled.*;
 import java.awt.*;
-import java.io.File;
-import java.io.IOException;
+import Audio.AudioService;
 
 public class PageAwal extends JPanel {
     private static final long serialVersionUID = 1L;
-    private float volumeLevel = 1.0f; // Set to maximum volume for testing
-    private Clip backgroundClip; // Keep a reference to the Clip
 
     public PageAwal(JFrame frame) {
         setLayout(new GridBagLayout());
@@ -123,13 +119,8 @@ public class PageAwal extends JPanel {
 
         JPanel audioPanel = new JPanel();
         audioPanel.add(new JLabel("Volume:"));
-        JSlider volumeSlider = new JSlider(0, 100, (int) (volumeLevel * 100));
-        volumeSlider.addChangeListener(e -> {
-            volumeLevel = volumeSlider.getValue() / 100f;
-            if (backgroundClip != null && backgroundClip.isOpen()) {
-                setVolume(backgroundClip, volumeLevel);
-            }
-        });
+        JSlider volumeSlider = new JSlider(0, 100, (int) (VolumeManager.getInstance().getVolume() * 100));
+        volumeSlider.addChangeListener(e -> VolumeManager.getInstance().setVolume(volumeSlider.getValue() / 100f));
         audioPanel.add(volumeSlider);
 
         settingsDialog.add(audioPanel, BorderLayout.CENTER);
@@ -142,38 +133,7 @@ public class PageAwal extends JPanel {
     }
 
     public void playBackgroundMusic(String filePath) {
-        try {
-            System.out.println("Attempting to play audio from: " + filePath);
-            File audioFile = new File(filePath);
-            if (!audioFile.exists()) {
-                System.err.println("Audio file does not exist.");
-                return;
-            }
-            AudioInputStream audioStream = AudioSystem.getAudioInputStream(audioFile);
-            backgroundClip = AudioSystem.getClip();
-            backgroundClip.open(audioStream);
-            setVolume(backgroundClip, volumeLevel);
-            backgroundClip.loop(Clip.LOOP_CONTINUOUSLY);
-            backgroundClip.start();
-            System.out.println("Audio is playing.");
-        } catch (UnsupportedAudioFileException e) {
-            System.err.println("The specified audio file is not supported.");
-            e.printStackTrace();
-        } catch (IOException e) {
-            System.err.println("Error occurred while reading the audio file.");
-            e.printStackTrace();
-        } catch (LineUnavailableException e) {
-            System.err.println("Audio line for playing back is unavailable.");
-            e.printStackTrace();
-        }
-    }
-
-    private void setVolume(Clip clip, float volume) {
-        if (clip.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
-            FloatControl gainControl = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
-            float range = gainControl.getMaximum() - gainControl.getMinimum();
-            float gain = (range * volume) + gainControl.getMinimum();
-            gainControl.setValue(gain);
-        }
+        // Streamed and looped on the shared music channel; reports itself if it cannot play
+        AudioService.getInstance().playMusic(filePath);
     }
 }
\ No newline at end of file
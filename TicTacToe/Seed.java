@@ -11,7 +11,7 @@ import javax.swing.ImageIcon;
  *
  * We also attach a display image icon (text or image) for the items.
  * To draw the image:
- *   g.drawImage(content.getImage(), x, y, width, height, null);
+ *   SpriteCache.draw(g, content.getImage(), x, y, width, height);
  */
 public enum Seed {
     CROSS("X", "Miya.png"),
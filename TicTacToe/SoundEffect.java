@@ -1,12 +1,8 @@
 package TicTacToe;
 
-import java.io.IOException;
-import java.net.URL;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.UnsupportedAudioFileException;
+import Audio.AudioService;
+import Audio.Channel;
+import Audio.Voice;
 /**
  * This enum encapsulates all the sound effects of a game, so as to separate the sound playing
  * codes from the game codes.
@@ -14,8 +10,15 @@ import javax.sound.sampled.UnsupportedAudioFileException;
  * 2. To play a specific sound, simply invoke SoundEffect.SOUND_NAME.play().
  * 3. You might optionally invoke the static method SoundEffect.initGame() to pre-load all the
  *    sound files, so that the play is not paused while loading the file for the first time.
- * 4. You can the static variable SoundEffect.volume to SoundEffect.Volume.MUTE
- *    to mute the sound.
+ *    Otherwise the first play() starts loading all of them in the background.
+ * 4. You can set the static variable SoundEffect.volume to a SoundEffect.Volume,
+ *    from MUTE to HIGH; it is the gain of every sound started after.
+ * The sounds are decoded and played by the shared AudioService, on its EFFECTS
+ * channel, so a repeat no longer cuts off the one still playing. Each effect
+ * has VOICES voices of its own, used in turn; a repeat beyond them stops that
+ * effect's oldest, so one effect played rapidly cannot take over the channel.
+ * play() never waits: an effect already loaded starts with the next block the
+ * channel mixes, a few milliseconds, and one still loading starts once it is.
  *
  * For Eclipse, place the audio file under "src", which will be copied into "bin".
  */
@@ -26,46 +29,61 @@ public enum SoundEffect {
 
     /** Nested enumeration for specifying volume */
     public static enum Volume {
-        MUTE, LOW, MEDIUM, HIGH
+        MUTE(0f), LOW(0.25f), MEDIUM(0.5f), HIGH(1f);
+
+        private final float gain;
+
+        private Volume(float gain) {
+            this.gain = gain;
+        }
+
+        /** Loudness of the effects, 0 (silent) to 1 */
+        public float getGain() {
+            return gain;
+        }
     }
 
-    public static Volume volume = Volume.LOW;
+    public static volatile Volume volume = Volume.LOW;
+
+    /** Sounds of one effect that can play at once */
+    public static final int VOICES = 4;
 
-    /** Each sound effect has its own clip, loaded with its own sound file. */
-    private Clip clip;
+    private static volatile boolean warm; // every sound file has started loading
+
+    /** The sound file, a resource on the class path (read from disk and JAR). */
+    private final String soundFileName;
+    private final Voice[] voices = new Voice[VOICES];
+    private int next; // the voice to use next, the oldest
 
     /** Private Constructor to construct each element of the enum with its own sound file. */
     private SoundEffect(String soundFileName) {
-        try {
-            // Use URL (instead of File) to read from disk and JAR.
-            URL url = this.getClass().getClassLoader().getResource(soundFileName);
-            // Set up an audio input stream piped from the sound file.
-            AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(url);
-            // Get a clip resource.
-            clip = AudioSystem.getClip();
-            // Open audio clip and load samples from the audio input stream.
-            clip.open(audioInputStream);
-        } catch (UnsupportedAudioFileException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
-        } catch (LineUnavailableException e) {
-            e.printStackTrace();
-        }
+        this.soundFileName = soundFileName;
     }
 
-    /** Play or Re-play the sound effect from the beginning, by rewinding. */
+    /** Play the sound effect from the beginning. */
     public void play() {
-        if (volume != Volume.MUTE) {
-            if (clip.isRunning())
-                clip.stop();   // Stop the player if it is still running
-            clip.setFramePosition(0); // rewind to the beginning
-            clip.start();     // Start playing
+        Volume v = volume;
+        if (v == Volume.MUTE) {
+            return;
+        }
+        if (!warm) {
+            initGame();
+        }
+        synchronized (voices) {
+            if (voices[next] != null) {
+                voices[next].stop(); // still playing after VOICES repeats: the oldest gives way
+            }
+            voices[next] = AudioService.getInstance().play(soundFileName, Channel.EFFECTS, v.getGain());
+            next = (next + 1) % VOICES;
         }
     }
 
     /** Optional static method to pre-load all the sound files. */
     static void initGame() {
-        values(); // calls the constructor for all the elements
+        warm = true;
+        AudioService.getInstance().prepare(Channel.EFFECTS);
+        for (SoundEffect effect : values()) {
+            AudioService.getInstance().load(effect.soundFileName); // decoded once in the background, shared
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package TicTacToe;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The SpriteCache class keeps a copy of each piece image already scaled to
+ * the size it is drawn at, in the screen's own image format. Scaling a large
+ * PNG on every repaint is slow; drawing the cached copy is a plain blit. A
+ * copy is only made again if the size it is drawn at or the screen's pixel
+ * scale changes.
+ *
+ * Usage, in place of g.drawImage(image, x, y, width, height, null):
+ *   SpriteCache.draw(g, image, x, y, width, height);
+ */
+public class SpriteCache {
+    private static final Map<Image, Sprite> sprites = new IdentityHashMap<>();
+
+    // An image scaled to width x height logical pixels at a screen scale
+    private static class Sprite {
+        final BufferedImage image;
+        final int width, height;
+        final double scale;
+
+        Sprite(BufferedImage image, int width, int height, double scale) {
+            this.image = image;
+            this.width = width;
+            this.height = height;
+            this.scale = scale;
+        }
+    }
+
+    private SpriteCache() { }
+
+    /** Draw the image scaled to width x height at x, y */
+    public static void draw(Graphics g, Image image, int x, int y, int width, int height) {
+        if (image.getWidth(null) <= 0 || image.getHeight(null) <= 0) {
+            g.drawImage(image, x, y, width, height, null); // not loaded yet, nothing to cache
+            return;
+        }
+        Sprite sprite = sprite((Graphics2D) g, image, width, height);
+        g.drawImage(sprite.image, x, y, width, height, null);
+    }
+
+    private static synchronized Sprite sprite(Graphics2D g, Image image, int width, int height) {
+        GraphicsConfiguration config = g.getDeviceConfiguration();
+        double scale = config.getDefaultTransform().getScaleX();
+        Sprite sprite = sprites.get(image);
+        if (sprite == null || sprite.width != width || sprite.height != height || sprite.scale != scale) {
+            int w = (int) Math.ceil(width * scale);
+            int h = (int) Math.ceil(height * scale);
+            BufferedImage scaled = config.createCompatibleImage(w, h, Transparency.TRANSLUCENT);
+            Graphics2D g2 = scaled.createGraphics();
+            g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2.drawImage(image, 0, 0, w, h, null);
+            g2.dispose();
+            sprite = new Sprite(scaled, width, height, scale);
+            sprites.put(image, sprite);
+        }
+        return sprite;
+    }
+}
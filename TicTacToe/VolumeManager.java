@@ -1,42 +1,41 @@
 package TicTacToe;
 
-import javax.sound.sampled.FloatControl;
-import javax.sound.sampled.Clip;
-
+import Audio.AudioService;
+import Audio.Channel;
+
+/**
+ * The volumes of the sound channels (music, effects and UI), kept by the
+ * shared AudioService so they carry over from one screen to the next.
+ * Volumes go from 0 to 1 on a decibel scale (see AudioService.toGain()),
+ * as a slider shows them.
+ *
+ * Safe to use from any thread. Setting a volume only stores it; the
+ * channel's audio thread ramps to it, so a slider can call setVolume() on
+ * every change event without stalling the event thread or clicking.
+ */
 public class VolumeManager {
-    private static VolumeManager instance;
-    private float volume = 1.0f;
-    private Clip currentClip;
+    private static final VolumeManager instance = new VolumeManager();
 
     private VolumeManager() {}
 
     public static VolumeManager getInstance() {
-        if (instance == null) {
-            instance = new VolumeManager();
-        }
         return instance;
     }
 
-    public float getVolume() {
-        return volume;
+    public float getVolume(Channel channel) {
+        return AudioService.getInstance().getVolume(channel);
     }
 
-    public void setVolume(float volume) {
-        this.volume = volume;
-        updateVolume();
+    public void setVolume(Channel channel, float volume) {
+        AudioService.getInstance().setVolume(channel, volume);
     }
 
-    public void setCurrentClip(Clip clip) {
-        this.currentClip = clip;
-        updateVolume();
+    /** Volume of the music */
+    public float getVolume() {
+        return getVolume(Channel.MUSIC);
     }
 
-    private void updateVolume() {
-        if (currentClip != null) {
-            FloatControl gainControl = (FloatControl) currentClip.getControl(FloatControl.Type.MASTER_GAIN);
-            float range = gainControl.getMaximum() - gainControl.getMinimum();
-            float gain = (range * volume) + gainControl.getMinimum();
-            gainControl.setValue(gain);
-        }
+    public void setVolume(float volume) {
+        setVolume(Channel.MUSIC, volume);
     }
-}
\ No newline at end of file
+}
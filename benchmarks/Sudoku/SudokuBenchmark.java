@@ -0,0 +1,306 @@
+package Sudoku;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Micro-benchmarks for puzzle generation, solving and validation.
+ *
+ * The benchmarks live in their own source root so the game never ships them.
+ * They are in package Sudoku to reach the engine's package-visible fields.
+ * Every benchmark runs on a corpus generated from a fixed seed, so two runs
+ * (or two commits) measure the same work.
+ *
+ * Usage:
+ * <pre>
+ *   javac -d out Sudoku/*.java benchmarks/Sudoku/*.java
+ *   java -cp out Sudoku.SudokuBenchmark [--filter text] [--save file]
+ *                                       [--compare file] [--threshold percent]
+ * </pre>
+ * --save writes the results as a baseline file. --compare reads one and
+ * flags every benchmark that got slower, or allocates more, by more than the
+ * threshold (default 25%, as separate JVM runs on a busy machine easily
+ * differ by 20%); the exit status is 1 if any did.
+ * benchmarks/baseline.txt is the committed baseline.
+ */
+public class SudokuBenchmark {
+    public static final long SEED = 20240601L;
+    public static final int CORPUS_SIZE = 64;
+    public static final int WARMUP_ITERATIONS = 5;
+    public static final int MEASURED_ITERATIONS = 10;
+    /** Each iteration runs for at least this long */
+    public static final long ITERATION_NANOS = 200_000_000L;
+    public static final double DEFAULT_THRESHOLD = 25.0;
+    /** Allocation changes smaller than this many bytes per op are never a regression */
+    public static final double ALLOCATION_SLACK = 16.0;
+
+    /** One benchmarked operation; run() returns a value so the work is not optimised away */
+    interface Benchmark {
+        long run(int op);
+    }
+
+    /** Mean time and allocation of one operation */
+    static class Result {
+        final String name;
+        final double nanosPerOp;
+        final double errorNanos; // standard deviation over the iterations
+        final double bytesPerOp;
+
+        Result(String name, double nanosPerOp, double errorNanos, double bytesPerOp) {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.errorNanos = errorNanos;
+            this.bytesPerOp = bytesPerOp;
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final Map<String, Benchmark> benchmarks = new LinkedHashMap<>();
+    private long blackhole;
+
+    // Fixed-seed corpora, per difficulty: puzzles (row-major, 0 for blank) and their solutions
+    private final Map<Integer, int[][]> puzzles = new LinkedHashMap<>();
+    private final Map<Integer, int[][]> solutions = new LinkedHashMap<>();
+
+    public SudokuBenchmark() {
+        int[] difficulties = {SudokuConstants.EASY, SudokuConstants.MEDIUM, SudokuConstants.HARD};
+        for (int difficulty : difficulties) {
+            buildCorpus(difficulty);
+        }
+
+        // Solution generation
+        ConstraintGrid grid = new ConstraintGrid(new Random(SEED));
+        benchmarks.put("generate.fill", op -> {
+            grid.clear();
+            grid.fill();
+            return grid.values[op % ConstraintGrid.CELLS];
+        });
+
+        // Clue removal, including grading, per difficulty
+        for (int difficulty : difficulties) {
+            Puzzle puzzle = new Puzzle(new Random(SEED + difficulty));
+            benchmarks.put("generate.puzzle." + difficulty, op -> {
+                puzzle.newPuzzle(difficulty);
+                return puzzle.numbers[op % SudokuConstants.GRID_SIZE][0];
+            });
+        }
+        Puzzle symmetric = new Puzzle(new Random(SEED));
+        symmetric.setRemovalPattern(RemovalPattern.ROTATIONAL);
+        benchmarks.put("generate.puzzle.rotational." + SudokuConstants.HARD, op -> {
+            symmetric.newPuzzle(SudokuConstants.HARD);
+            return symmetric.numbers[op % SudokuConstants.GRID_SIZE][0];
+        });
+
+        // Solving
+        for (int difficulty : difficulties) {
+            int[][] corpus = puzzles.get(difficulty);
+            int[][] answers = solutions.get(difficulty);
+            DancingLinksSolver solver = new DancingLinksSolver();
+            benchmarks.put("solve.dlx." + difficulty, op -> {
+                solver.countSolutions(corpus[op % CORPUS_SIZE], 1, Puzzle.SOLVE_NODES);
+                return solver.solution[op % ConstraintGrid.CELLS];
+            });
+            DifficultyGrader grader = new DifficultyGrader();
+            benchmarks.put("solve.logic." + difficulty, op -> {
+                int i = op % CORPUS_SIZE;
+                return grader.grade(corpus[i], answers[i]);
+            });
+        }
+
+        // Validation: uniqueness of a puzzle, and the board's own solved check
+        int[][] hard = puzzles.get(SudokuConstants.HARD);
+        DancingLinksSolver validator = new DancingLinksSolver();
+        benchmarks.put("validate.unique." + SudokuConstants.HARD,
+                op -> validator.countSolutions(hard[op % CORPUS_SIZE], 2, Puzzle.SOLVE_NODES));
+        SudokuGame game = new SudokuGame();
+        game.newGame(SudokuConstants.HARD);
+        benchmarks.put("validate.board.isSolved", op -> game.isSolved() ? 1 : 0);
+
+        // Recording a command on the input path; a new recording every 64K events
+        SessionRecorder recorder = new SessionRecorder();
+        recorder.begin(game);
+        benchmarks.put("record.enter", op -> {
+            if (recorder.getEventCount() == 1 << 16) {
+                recorder.begin(game);
+            }
+            recorder.record(SessionRecorder.ENTER, op % ConstraintGrid.CELLS, op % SudokuConstants.GRID_SIZE + 1);
+            return recorder.getEventCount();
+        });
+    }
+
+    private void buildCorpus(int difficulty) {
+        Puzzle puzzle = new Puzzle(new Random(SEED ^ difficulty));
+        int[][] corpus = new int[CORPUS_SIZE][ConstraintGrid.CELLS];
+        int[][] answers = new int[CORPUS_SIZE][ConstraintGrid.CELLS];
+        for (int i = 0; i < CORPUS_SIZE; ++i) {
+            puzzle.newPuzzle(difficulty);
+            for (int cell = 0; cell < ConstraintGrid.CELLS; ++cell) {
+                int row = cell / SudokuConstants.GRID_SIZE;
+                int col = cell % SudokuConstants.GRID_SIZE;
+                corpus[i][cell] = puzzle.numbers[row][col];
+                answers[i][cell] = puzzle.solution[row][col];
+            }
+        }
+        puzzles.put(difficulty, corpus);
+        solutions.put(difficulty, answers);
+    }
+
+    /** Run every benchmark whose name contains filter */
+    public List<Result> run(String filter) {
+        List<Result> results = new ArrayList<>();
+        for (Map.Entry<String, Benchmark> e : benchmarks.entrySet()) {
+            if (filter == null || e.getKey().contains(filter)) {
+                Result result = measure(e.getKey(), e.getValue());
+                System.out.printf("%-36s %12.1f ns/op  +- %8.1f %12.0f B/op%n",
+                        result.name, result.nanosPerOp, result.errorNanos, result.bytesPerOp);
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    private Result measure(String name, Benchmark benchmark) {
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            iteration(benchmark, null);
+        }
+        double[] nanos = new double[MEASURED_ITERATIONS];
+        long totalOps = 0;
+        long totalBytes = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; ++i) {
+            long[] counts = new long[2];
+            nanos[i] = iteration(benchmark, counts);
+            totalOps += counts[0];
+            totalBytes += counts[1];
+        }
+        double mean = 0;
+        for (double n : nanos) {
+            mean += n / MEASURED_ITERATIONS;
+        }
+        double variance = 0;
+        for (double n : nanos) {
+            variance += (n - mean) * (n - mean) / MEASURED_ITERATIONS;
+        }
+        return new Result(name, mean, Math.sqrt(variance), (double) totalBytes / totalOps);
+    }
+
+    // Run ops until ITERATION_NANOS have passed; returns ns per op and stores
+    // the op count and bytes allocated by this thread in counts
+    private double iteration(Benchmark benchmark, long[] counts) {
+        long thread = Thread.currentThread().getId();
+        long bytesBefore = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        long elapsed;
+        int ops = 0;
+        do {
+            blackhole += benchmark.run(ops++);
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        if (counts != null) {
+            counts[0] = ops;
+            counts[1] = THREADS.getThreadAllocatedBytes(thread) - bytesBefore;
+        }
+        return (double) elapsed / ops;
+    }
+
+    /** Write results as "name nanosPerOp errorNanos bytesPerOp" lines */
+    static void save(List<Result> results, Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            out.println("# SudokuBenchmark baseline: name ns/op error B/op");
+            for (Result r : results) {
+                out.printf(java.util.Locale.ROOT, "%s %.1f %.1f %.1f%n", r.name, r.nanosPerOp, r.errorNanos, r.bytesPerOp);
+            }
+        }
+    }
+
+    static Map<String, Result> load(Path path) throws IOException {
+        Map<String, Result> baseline = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] f = line.trim().split("\\s+");
+            baseline.put(f[0], new Result(f[0], Double.parseDouble(f[1]),
+                    Double.parseDouble(f[2]), Double.parseDouble(f[3])));
+        }
+        return baseline;
+    }
+
+    /** Print each result against the baseline; returns the number of regressions */
+    static int compare(List<Result> results, Map<String, Result> baseline, double threshold) {
+        int regressions = 0;
+        System.out.println();
+        System.out.printf("%-36s %12s %12s %9s %9s%n", "benchmark", "base ns/op", "ns/op", "time", "alloc");
+        for (Result r : results) {
+            Result base = baseline.get(r.name);
+            if (base == null) {
+                System.out.printf("%-36s %12s %12.1f%n", r.name, "(new)", r.nanosPerOp);
+                continue;
+            }
+            double time = percentChange(base.nanosPerOp, r.nanosPerOp);
+            double alloc = percentChange(base.bytesPerOp, r.bytesPerOp);
+            // Only count a slowdown that also exceeds the run-to-run noise
+            boolean slower = time > threshold
+                    && r.nanosPerOp - base.nanosPerOp > base.errorNanos + r.errorNanos;
+            boolean allocates = alloc > threshold && r.bytesPerOp - base.bytesPerOp > ALLOCATION_SLACK;
+            boolean regressed = slower || allocates;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-36s %12.1f %12.1f %+8.1f%% %+8.1f%%%s%n", r.name, base.nanosPerOp,
+                    r.nanosPerOp, time, alloc, regressed ? "  REGRESSION" : "");
+        }
+        return regressions;
+    }
+
+    private static double percentChange(double before, double after) {
+        if (before == 0) {
+            return after == 0 ? 0 : 100;
+        }
+        return (after - before) * 100 / before;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String filter = null;
+        Path savePath = null;
+        Path comparePath = null;
+        double threshold = DEFAULT_THRESHOLD;
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--filter": filter = args[++i]; break;
+                case "--save": savePath = Paths.get(args[++i]); break;
+                case "--compare": comparePath = Paths.get(args[++i]); break;
+                case "--threshold": threshold = Double.parseDouble(args[++i]); break;
+                default:
+                    System.err.println("Usage: java Sudoku.SudokuBenchmark [--filter text] [--save file]"
+                            + " [--compare file] [--threshold percent]");
+                    System.exit(1);
+            }
+        }
+        // The validation benchmark builds a board without showing it
+        System.setProperty("java.awt.headless", "true");
+
+        SudokuBenchmark suite = new SudokuBenchmark();
+        List<Result> results = suite.run(filter);
+        if (savePath != null) {
+            save(results, savePath);
+        }
+        int regressions = comparePath == null ? 0 : compare(results, load(comparePath), threshold);
+        // Keeps the JIT from dropping the benchmarked work
+        if (suite.blackhole == 42) {
+            System.out.println();
+        }
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+}